@@ -0,0 +1,48 @@
+package meralco;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// A service account from the accounts table (see BillDatabase); every bill
+// belongs to one.
+class Account {
+    final int id;
+    final String name;
+
+    Account(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    // Shown as-is in the account selector
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    // Every account, by id
+    static List<Account> loadAll(Connection connection) throws SQLException {
+        List<Account> accounts = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, name FROM accounts ORDER BY id")) {
+            while (rs.next()) {
+                accounts.add(new Account(rs.getInt(1), rs.getString(2)));
+            }
+        }
+        return accounts;
+    }
+
+    // Adds an account under the next free id; names must be unique.
+    static Account create(Connection connection, String name) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement("INSERT INTO accounts (name) VALUES (?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, name);
+            pstmt.executeUpdate();
+            try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                rs.next();
+                return new Account(rs.getInt(1), name);
+            }
+        }
+    }
+}
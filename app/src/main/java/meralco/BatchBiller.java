@@ -0,0 +1,336 @@
+package meralco;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Bills readings without the window: CSV rows in the columns BillImporter reads
+// (id, date, kwh, rate, memo) are priced with the rules of Calculate and written
+// out in BillExporter's columns (id, date, kwh, rate, memo, total), and are
+// optionally saved to an account as well.
+//
+// Rows are checked and priced by Reading.parse, so a blank rate uses the
+// scheduled rate for the date, or failing that the tariff, as Calculate does.
+// The ID may be blank; saved rows get the next free ID, unsaved ones are
+// written without one.
+//
+// The work is a pipeline. One thread splits the input into chunks of CHUNK_SIZE
+// records, a pool of workers parses, checks and prices the chunks, and the
+// calling thread takes the finished chunks in input order to write them and to
+// insert them (one transaction per chunk). No more than two chunks per worker
+// are in flight, so memory stays flat however long the input is.
+class BatchBiller {
+    static final int CHUNK_SIZE = 10_000;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO bills (id, kwh, rate, total, timestamp, memo, account_id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    interface Listener {
+        // Called after each chunk is written
+        void progress(long rowsRead, long rowsBilled);
+
+        void rejected(String source, long lineNumber, String reason);
+    }
+
+    static final class Result implements OperationMetrics.RowCounted {
+        final long billed;
+        final long rejected;
+
+        Result(long billed, long rejected) {
+            this.billed = billed;
+            this.rejected = rejected;
+        }
+
+        @Override
+        public long rowCount() {
+            return billed;
+        }
+    }
+
+    // One CSV record and, once priced, its bill or why it was rejected
+    private static final class Row {
+        final long lineNumber;
+        List<String> fields;
+
+        String error;
+        Reading reading;
+        // The reading's ID, or once saved the ID it was given
+        int id;
+        // The output line after the ID, including the newline
+        String csv;
+
+        Row(long lineNumber, List<String> fields) {
+            this.lineNumber = lineNumber;
+            this.fields = fields;
+        }
+    }
+
+    private static final class Chunk {
+        final String source;
+        final List<Row> rows = new ArrayList<>();
+
+        Chunk(String source) {
+            this.source = source;
+        }
+    }
+
+    // Marks the end of the input in the queue
+    private static final Chunk END = new Chunk(null);
+
+    private final BillPricer pricer;
+    private final int workerCount;
+
+    private Connection connection;
+    private int accountId;
+    private IdAllocator idAllocator;
+
+    BatchBiller(BillPricer pricer, int workerCount) {
+        this.pricer = pricer;
+        this.workerCount = workerCount;
+    }
+
+    // Saves the billed rows to an account as well. The allocator is updated as
+    // rows are saved; the IDs of a chunk that fails to save are freed again.
+    void saveTo(Connection connection, int accountId, IdAllocator idAllocator) {
+        this.connection = connection;
+        this.accountId = accountId;
+        this.idAllocator = idAllocator;
+    }
+
+    // Bills every source in turn ("-" for stdin) and writes the results with a
+    // header line. A chunk is written once it is saved, so the output never
+    // lists rows that failed to save. The writer is flushed after every chunk,
+    // but not closed.
+    Result bill(List<String> sources, Writer out, Listener listener) throws IOException, SQLException {
+        BlockingQueue<Future<Chunk>> queue = new ArrayBlockingQueue<>(2 * workerCount);
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread thread = new Thread(r, "batch biller " + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Thread reader = new Thread(() -> read(sources, queue, workers), "batch reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        long rowsRead = 0;
+        long billed = 0;
+        long rejected = 0;
+        boolean autoCommit = connection == null || connection.getAutoCommit();
+        // IDs given to the rows of the chunk not yet committed
+        List<Integer> allocated = new ArrayList<>();
+        StringBuilder lines = new StringBuilder();
+        try (PreparedStatement pstmt = connection == null ? null : connection.prepareStatement(INSERT_SQL)) {
+            if (connection != null) {
+                connection.setAutoCommit(false);
+            }
+            out.write("id,date,kwh,rate,memo,total\n");
+            Chunk chunk;
+            while ((chunk = take(queue)) != END) {
+                allocated.clear();
+                lines.setLength(0);
+                int chunkBilled = 0;
+                for (Row row : chunk.rows) {
+                    String error = row.error;
+                    if (error == null && pstmt != null) {
+                        error = allocateId(row);
+                        if (error == null) {
+                            allocated.add(row.id);
+                        }
+                    }
+                    if (error != null) {
+                        rejected++;
+                        listener.rejected(chunk.source, row.lineNumber, error);
+                        continue;
+                    }
+                    if (row.id != 0) {
+                        lines.append(row.id);
+                    }
+                    lines.append(row.csv);
+                    if (pstmt != null) {
+                        bind(pstmt, row);
+                        pstmt.addBatch();
+                    }
+                    chunkBilled++;
+                }
+                if (!allocated.isEmpty()) {
+                    pstmt.executeBatch();
+                    connection.commit();
+                    allocated.clear();
+                }
+                rowsRead += chunk.rows.size();
+                billed += chunkBilled;
+                out.append(lines);
+                out.flush();
+                listener.progress(rowsRead, billed);
+            }
+            return new Result(billed, rejected);
+        } catch (SQLException | IOException | RuntimeException e) {
+            if (connection != null) {
+                connection.rollback();
+                for (int id : allocated) {
+                    idAllocator.markFree(id);
+                }
+            }
+            throw e;
+        } finally {
+            reader.interrupt();
+            workers.shutdownNow();
+            if (connection != null) {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private static Chunk take(BlockingQueue<Future<Chunk>> queue) throws IOException {
+        try {
+            return queue.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Billing was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    // Reader thread: splits the sources into chunks and hands each to the
+    // workers, queueing its result in input order. Whatever stops it early is
+    // queued as a failed chunk, so the billing thread never waits for END.
+    private void read(List<String> sources, BlockingQueue<Future<Chunk>> queue, ExecutorService workers) {
+        String current = null;
+        try {
+            for (String source : sources) {
+                current = source;
+                try (Reader in = "-".equals(source)
+                        ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                        : Files.newBufferedReader(Paths.get(source), StandardCharsets.UTF_8)) {
+                    CsvReader csv = new CsvReader(in);
+                    Chunk chunk = new Chunk(source);
+                    long lineNumber = csv.getLineNumber();
+                    List<String> fields;
+                    while ((fields = csv.readRecord()) != null) {
+                        boolean blank = fields.size() == 1 && fields.get(0).trim().isEmpty();
+                        if (!blank && !(lineNumber == 1 && fields.get(0).trim().equalsIgnoreCase("id"))) {
+                            chunk.rows.add(new Row(lineNumber, fields));
+                            if (chunk.rows.size() == CHUNK_SIZE) {
+                                Chunk full = chunk;
+                                queue.put(CompletableFuture.supplyAsync(() -> price(full), workers));
+                                chunk = new Chunk(source);
+                            }
+                        }
+                        lineNumber = csv.getLineNumber();
+                    }
+                    if (!chunk.rows.isEmpty()) {
+                        Chunk last = chunk;
+                        queue.put(CompletableFuture.supplyAsync(() -> price(last), workers));
+                    }
+                }
+            }
+            queue.put(CompletableFuture.completedFuture(END));
+        } catch (InterruptedException | RejectedExecutionException e) {
+            // Billing stopped before the input ended
+        } catch (IOException | RuntimeException e) {
+            // e.g. an unreadable file or a malformed path
+            fail(queue, new IOException("cannot read " + current + ": " + e.getMessage(), e));
+        } catch (Error e) {
+            fail(queue, e);
+            throw e;
+        }
+    }
+
+    private static void fail(BlockingQueue<Future<Chunk>> queue, Throwable cause) {
+        CompletableFuture<Chunk> failed = new CompletableFuture<>();
+        failed.completeExceptionally(cause);
+        try {
+            queue.put(failed);
+        } catch (InterruptedException e) {
+            // Billing stopped already
+        }
+    }
+
+    // Worker: prices every row of a chunk and renders its output line
+    private Chunk price(Chunk chunk) {
+        StringWriter csv = new StringWriter(64);
+        try {
+            for (Row row : chunk.rows) {
+                try {
+                    row.reading = Reading.parse(row.fields, pricer);
+                    row.id = row.reading.id;
+                } catch (IllegalArgumentException e) {
+                    row.error = e.getMessage();
+                }
+                row.fields = null;
+                if (row.error == null) {
+                    Reading reading = row.reading;
+                    csv.getBuffer().setLength(0);
+                    csv.write(',');
+                    BillExporter.writeCsvField(csv, reading.timestamp);
+                    csv.write(',');
+                    csv.write(Double.toString(reading.kwh));
+                    csv.write(',');
+                    csv.write(Double.toString(reading.rate));
+                    csv.write(',');
+                    BillExporter.writeCsvField(csv, reading.memo);
+                    csv.write(',');
+                    csv.write(Double.toString(reading.total));
+                    csv.write('\n');
+                    row.csv = csv.toString();
+                }
+            }
+        } catch (IOException e) {
+            // A StringWriter does not throw
+            throw new UncheckedIOException(e);
+        }
+        return chunk;
+    }
+
+    // Gives a row being saved its ID, or returns why it cannot have it.
+    private String allocateId(Row row) {
+        if (row.id == 0) {
+            row.id = idAllocator.nextId();
+        } else if (idAllocator.isUsed(row.id)) {
+            return "ID " + row.id + " already exists";
+        }
+        idAllocator.markUsed(row.id);
+        return null;
+    }
+
+    private void bind(PreparedStatement pstmt, Row row) throws SQLException {
+        pstmt.setInt(1, row.id);
+        pstmt.setDouble(2, row.reading.kwh);
+        pstmt.setDouble(3, row.reading.rate);
+        pstmt.setDouble(4, row.reading.total);
+        pstmt.setString(5, row.reading.timestamp);
+        pstmt.setString(6, row.reading.memo);
+        pstmt.setInt(7, accountId);
+    }
+}
@@ -0,0 +1,228 @@
+package meralco;
+
+import java.sql.*;
+import java.util.Properties;
+
+// Opens the bills database and creates the schema if needed. Shared by the
+// window and the headless tools so they all agree on the schema.
+final class BillDatabase {
+    private static final String SUMMARY_COLUMNS =
+            "account_id, month, reading_count, kwh_sum, total_sum, rate_sum, kwh_min, kwh_max, last_timestamp, last_kwh";
+
+    // Bills saved before accounts existed belong to this one
+    static final int DEFAULT_ACCOUNT = 1;
+
+    // Per connection: 16 MiB of page cache and up to 256 MiB of the file
+    // mapped, so reads of a large database are served from memory
+    private static final int CACHE_KIB = 16 * 1024;
+    private static final long MMAP_BYTES = 256L * 1024 * 1024;
+    // How long a connection waits for another one's lock before failing
+    private static final int BUSY_TIMEOUT_MILLIS = 5000;
+
+    private BillDatabase() {
+    }
+
+    static Connection open(String url) throws ClassNotFoundException, SQLException {
+        Class.forName("org.sqlite.JDBC");
+        Connection connection = DriverManager.getConnection(url);
+        try (Statement stmt = connection.createStatement()) {
+            // WAL lets bulk writes commit without rewriting the rollback journal,
+            // and lets readers keep reading while a write is in progress. Synced
+            // at checkpoints rather than every commit: a power cut may lose the
+            // last commits but never corrupts the file.
+            stmt.execute("PRAGMA journal_mode = WAL");
+            stmt.execute("PRAGMA synchronous = NORMAL");
+            tune(stmt);
+            createSchema(stmt);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    // A read-only connection to an existing database, for readers that run
+    // beside the main connection (see DatabaseExecutor and PortfolioReport).
+    // The schema is left to open().
+    static Connection openReadOnly(String url) throws SQLException {
+        Properties properties = new Properties();
+        // SQLITE_OPEN_READONLY
+        properties.setProperty("open_mode", "1");
+        Connection connection = DriverManager.getConnection(url, properties);
+        try (Statement stmt = connection.createStatement()) {
+            tune(stmt);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    // Settings that SQLite keeps per connection
+    private static void tune(Statement stmt) throws SQLException {
+        stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MILLIS);
+        stmt.execute("PRAGMA cache_size = -" + CACHE_KIB);
+        stmt.execute("PRAGMA mmap_size = " + MMAP_BYTES);
+        // Sorts and temporary indexes stay off disk
+        stmt.execute("PRAGMA temp_store = MEMORY");
+    }
+
+    static void createSchema(Statement stmt) throws SQLException {
+        createBillsTable(stmt);
+        if (!hasColumn(stmt, "bills", "account_id")) {
+            stmt.execute("ALTER TABLE bills ADD COLUMN account_id INTEGER NOT NULL DEFAULT " + DEFAULT_ACCOUNT);
+        }
+        createAccountsTable(stmt);
+
+        // Back the date and rate searches and the date ordering (id is the rowid),
+        // and the same within one account
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_bills_timestamp ON bills(timestamp)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_bills_rate ON bills(rate)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_bills_account_timestamp ON bills(account_id, timestamp)");
+        createMemoIndex(stmt);
+
+        // Published rates by the date they take effect (see RateSchedule)
+        stmt.execute("CREATE TABLE IF NOT EXISTS rate_schedule (" +
+                "effective_date TEXT PRIMARY KEY, " +
+                "rate REAL NOT NULL)");
+
+        createMonthlySummary(stmt);
+    }
+
+    // Just the bills table, without its indexes and triggers. BillGenerator
+    // fills it bare and lets createSchema index and summarize it afterwards.
+    static void createBillsTable(Statement stmt) throws SQLException {
+        // Create table if it doesn't exist
+        String createTableSQL = "CREATE TABLE IF NOT EXISTS bills (" +
+                "id INTEGER PRIMARY KEY, " +
+                "kwh REAL NOT NULL, " +
+                "rate REAL NOT NULL, " +
+                "total REAL NOT NULL, " +
+                "timestamp TEXT NOT NULL, " +
+                "memo TEXT, " +
+                "account_id INTEGER NOT NULL DEFAULT " + DEFAULT_ACCOUNT + ")";
+        stmt.execute(createTableSQL);
+    }
+
+    // Service accounts (one meter each) that bills belong to. A database
+    // without any gets the default account.
+    static void createAccountsTable(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS accounts (" +
+                "id INTEGER PRIMARY KEY, " +
+                "name TEXT NOT NULL UNIQUE)");
+        stmt.execute("INSERT INTO accounts (id, name) SELECT " + DEFAULT_ACCOUNT + ", 'Default' " +
+                "WHERE NOT EXISTS (SELECT 1 FROM accounts)");
+    }
+
+    private static boolean hasColumn(Statement stmt, String table, String column) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equals(rs.getString("name"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Per-account, per-month totals over bills ("YYYY-MM" keys), kept current
+    // by triggers so the dashboard reads one row per month instead of every
+    // bill. Inserts and rate corrections adjust the month's row in place;
+    // deletes and changes to a bill's date, kWh or ID (which can decide its
+    // last reading) recount the affected months from the account and
+    // timestamp index.
+    private static void createMonthlySummary(Statement stmt) throws SQLException {
+        boolean exists;
+        try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'monthly_summary'")) {
+            exists = rs.next();
+        }
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS monthly_summary (" +
+                "account_id INTEGER NOT NULL, " +
+                "month TEXT NOT NULL, " +
+                "reading_count INTEGER NOT NULL, " +
+                "kwh_sum REAL NOT NULL, " +
+                "total_sum REAL NOT NULL, " +
+                "rate_sum REAL NOT NULL, " +
+                "kwh_min REAL NOT NULL, " +
+                "kwh_max REAL NOT NULL, " +
+                "last_timestamp TEXT NOT NULL, " +
+                "last_kwh REAL NOT NULL, " +
+                "PRIMARY KEY (account_id, month))");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS bills_summary_insert AFTER INSERT ON bills BEGIN " +
+                "INSERT INTO monthly_summary (" + SUMMARY_COLUMNS + ") VALUES (new.account_id, substr(new.timestamp, 1, 7), 1, " +
+                "new.kwh, new.total, new.rate, new.kwh, new.kwh, new.timestamp, new.kwh) " +
+                "ON CONFLICT(account_id, month) DO UPDATE SET reading_count = reading_count + 1, " +
+                "kwh_sum = kwh_sum + excluded.kwh_sum, " +
+                "total_sum = total_sum + excluded.total_sum, " +
+                "rate_sum = rate_sum + excluded.rate_sum, " +
+                "kwh_min = MIN(kwh_min, excluded.kwh_min), " +
+                "kwh_max = MAX(kwh_max, excluded.kwh_max), " +
+                // Of readings at the same time, the one with the highest ID is
+                // the last, as in recountMonth
+                "last_kwh = CASE WHEN excluded.last_timestamp > last_timestamp THEN excluded.last_kwh " +
+                "WHEN excluded.last_timestamp = last_timestamp THEN (SELECT kwh FROM bills " +
+                "WHERE account_id = new.account_id AND timestamp = new.timestamp ORDER BY id DESC LIMIT 1) " +
+                "ELSE last_kwh END, " +
+                "last_timestamp = MAX(last_timestamp, excluded.last_timestamp); END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS bills_summary_delete AFTER DELETE ON bills BEGIN " +
+                recountMonth("old.account_id", "substr(old.timestamp, 1, 7)") + "END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS bills_summary_update_amounts AFTER UPDATE ON bills " +
+                "WHEN old.timestamp = new.timestamp AND old.kwh = new.kwh AND old.account_id = new.account_id " +
+                "AND old.id = new.id BEGIN " +
+                "UPDATE monthly_summary SET total_sum = total_sum - old.total + new.total, " +
+                "rate_sum = rate_sum - old.rate + new.rate " +
+                "WHERE account_id = new.account_id AND month = substr(new.timestamp, 1, 7); END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS bills_summary_update AFTER UPDATE ON bills " +
+                "WHEN old.timestamp <> new.timestamp OR old.kwh <> new.kwh OR old.account_id <> new.account_id " +
+                "OR old.id <> new.id BEGIN " +
+                recountMonth("old.account_id", "substr(old.timestamp, 1, 7)") +
+                recountMonth("new.account_id", "substr(new.timestamp, 1, 7)") + "END");
+
+        if (!exists) {
+            // Summarize bills saved before the table existed
+            stmt.execute("INSERT INTO monthly_summary (" + SUMMARY_COLUMNS + ") " +
+                    "SELECT account_id, substr(timestamp, 1, 7), COUNT(*), SUM(kwh), SUM(total), SUM(rate), MIN(kwh), MAX(kwh), " +
+                    "MAX(timestamp), (SELECT b.kwh FROM bills b WHERE b.account_id = bills.account_id " +
+                    "AND b.timestamp >= substr(bills.timestamp, 1, 7) AND b.timestamp < substr(bills.timestamp, 1, 7) || '~' " +
+                    "ORDER BY b.timestamp DESC, b.id DESC LIMIT 1) " +
+                    "FROM bills GROUP BY account_id, substr(timestamp, 1, 7)");
+        }
+    }
+
+    // Trigger statements that rebuild one account's month. Timestamps of the
+    // month sort between "YYYY-MM" and "YYYY-MM~", a range on
+    // idx_bills_account_timestamp.
+    private static String recountMonth(String account, String month) {
+        String inMonth = "account_id = " + account + " AND timestamp >= " + month + " AND timestamp < " + month + " || '~'";
+        return "DELETE FROM monthly_summary WHERE account_id = " + account + " AND month = " + month + "; " +
+                "INSERT INTO monthly_summary (" + SUMMARY_COLUMNS + ") " +
+                "SELECT " + account + ", " + month + ", COUNT(*), SUM(kwh), SUM(total), SUM(rate), MIN(kwh), MAX(kwh), MAX(timestamp), " +
+                "(SELECT kwh FROM bills WHERE " + inMonth + " ORDER BY timestamp DESC, id DESC LIMIT 1) " +
+                "FROM bills WHERE " + inMonth + " HAVING COUNT(*) > 0; ";
+    }
+
+    // Full-text index over memos, kept in sync with bills by triggers
+    private static void createMemoIndex(Statement stmt) throws SQLException {
+        boolean exists;
+        try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'bills_fts'")) {
+            exists = rs.next();
+        }
+
+        stmt.execute("CREATE VIRTUAL TABLE IF NOT EXISTS bills_fts USING fts5(memo, content='bills', content_rowid='id')");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS bills_fts_insert AFTER INSERT ON bills BEGIN " +
+                "INSERT INTO bills_fts(rowid, memo) VALUES (new.id, new.memo); END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS bills_fts_delete AFTER DELETE ON bills BEGIN " +
+                "INSERT INTO bills_fts(bills_fts, rowid, memo) VALUES ('delete', old.id, old.memo); END");
+        // Only a changed id or memo touches the index, so rate and total
+        // updates don't rewrite it
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS bills_fts_update AFTER UPDATE OF id, memo ON bills BEGIN " +
+                "INSERT INTO bills_fts(bills_fts, rowid, memo) VALUES ('delete', old.id, old.memo); " +
+                "INSERT INTO bills_fts(rowid, memo) VALUES (new.id, new.memo); END");
+
+        if (!exists) {
+            // Index memos saved before the index existed
+            stmt.execute("INSERT INTO bills_fts(bills_fts) VALUES ('rebuild')");
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package meralco;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Next month's projected usage and bill for one account, from its monthly
+// rollup. The rate has the same precedence as Calculate: the rate scheduled for
+// the month, then the tariff, then the latest month's average rate.
+final class BillEstimate {
+    static final String AVERAGE = "average";
+
+    final int year;
+    final int month;
+    final MonthlySummary latest;
+    final ConsumptionForecaster.Forecast forecast;
+    final double rate;
+    final double bill;
+    // BillPricer.SCHEDULED, BillPricer.TARIFF or AVERAGE
+    final String rateSource;
+
+    private BillEstimate(int year, int month, MonthlySummary latest, ConsumptionForecaster.Forecast forecast,
+                         double rate, double bill, String rateSource) {
+        this.year = year;
+        this.month = month;
+        this.latest = latest;
+        this.forecast = forecast;
+        this.rate = rate;
+        this.bill = bill;
+        this.rateSource = rateSource;
+    }
+
+    // Estimate from the months in order, or null if there are none. The tariff
+    // may be null.
+    static BillEstimate of(List<MonthlySummary> months, RateSchedule rateSchedule, TariffEngine tariff) {
+        ConsumptionForecaster forecaster = ConsumptionForecaster.of(months);
+        if (forecaster.getMonthCount() == 0) {
+            return null;
+        }
+
+        int next = forecaster.nextMonthIndex();
+        int year = ConsumptionForecaster.yearOf(next);
+        int month = ConsumptionForecaster.monthOf(next);
+        ConsumptionForecaster.Forecast forecast = forecaster.forecast(year, month);
+        MonthlySummary latest = months.get(months.size() - 1);
+
+        Double scheduledRate = rateSchedule.rateOn(LocalDate.of(year, month, 1));
+        if (scheduledRate != null) {
+            return new BillEstimate(year, month, latest, forecast, scheduledRate,
+                    forecast.kwh * scheduledRate, BillPricer.SCHEDULED);
+        }
+        if (tariff != null) {
+            TariffEngine.Bill bill = tariff.calculate(forecast.kwh);
+            return new BillEstimate(year, month, latest, forecast, bill.getEffectiveRate(),
+                    bill.getTotal().doubleValue(), BillPricer.TARIFF);
+        }
+        return new BillEstimate(year, month, latest, forecast, latest.averageRate(),
+                forecast.kwh * latest.averageRate(), AVERAGE);
+    }
+}
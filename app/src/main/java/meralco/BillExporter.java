@@ -0,0 +1,167 @@
+package meralco;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.zip.GZIPOutputStream;
+
+// Streams bills straight from a forward-only result set to a file, one row at
+// a time, so exports use the same memory whatever their size. CSV output uses
+// the columns BillImporter reads (id, date, kwh, rate, memo) followed by total.
+class BillExporter {
+    static final int PROGRESS_INTERVAL = 10_000;
+
+    enum Format {
+        CSV, JSON_LINES;
+
+        // Format implied by a file name (.csv, .jsonl, optionally .gz)
+        static Format forFileName(String fileName) {
+            String name = fileName.toLowerCase();
+            if (name.endsWith(".gz")) {
+                name = name.substring(0, name.length() - 3);
+            }
+            return (name.endsWith(".jsonl") || name.endsWith(".json")) ? JSON_LINES : CSV;
+        }
+    }
+
+    interface ProgressListener {
+        void progress(long rowsWritten);
+    }
+
+    private final Connection connection;
+
+    BillExporter(Connection connection) {
+        this.connection = connection;
+    }
+
+    // Writes every bill matching the filter in id order and returns the row
+    // count. The stream is closed when done.
+    long export(BillFilter filter, Format format, boolean gzip, OutputStream out,
+                ProgressListener listener) throws SQLException, IOException {
+        String sql = "SELECT bills.id, bills.timestamp, bills.kwh, bills.rate, bills.total, bills.memo FROM " +
+                filter.getFrom() + filter.toSql() + " ORDER BY bills.id";
+        long rows = 0;
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                gzip ? new GZIPOutputStream(out, 1 << 16) : out, StandardCharsets.UTF_8), 1 << 16);
+             PreparedStatement pstmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(1000);
+            int index = 1;
+            for (Object param : filter.getParams()) {
+                pstmt.setObject(index++, param);
+            }
+
+            if (format == Format.CSV) {
+                writer.write("id,date,kwh,rate,memo,total\n");
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (format == Format.CSV) {
+                        writeCsvRow(writer, rs);
+                    } else {
+                        writeJsonRow(writer, rs);
+                    }
+                    if (++rows % PROGRESS_INTERVAL == 0) {
+                        listener.progress(rows);
+                    }
+                }
+            }
+        }
+        listener.progress(rows);
+        return rows;
+    }
+
+    private static void writeCsvRow(Writer writer, ResultSet rs) throws SQLException, IOException {
+        writer.write(Integer.toString(rs.getInt(1)));
+        writer.write(',');
+        writeCsvField(writer, rs.getString(2));
+        writer.write(',');
+        writer.write(Double.toString(rs.getDouble(3)));
+        writer.write(',');
+        writer.write(Double.toString(rs.getDouble(4)));
+        writer.write(',');
+        writeCsvField(writer, rs.getString(6));
+        writer.write(',');
+        writer.write(Double.toString(rs.getDouble(5)));
+        writer.write('\n');
+    }
+
+    static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    static void writeJsonRow(Writer writer, ResultSet rs) throws SQLException, IOException {
+        writer.write("{\"id\":");
+        writer.write(Integer.toString(rs.getInt(1)));
+        writer.write(",\"timestamp\":");
+        writeJsonString(writer, rs.getString(2));
+        writer.write(",\"kwh\":");
+        writer.write(Double.toString(rs.getDouble(3)));
+        writer.write(",\"rate\":");
+        writer.write(Double.toString(rs.getDouble(4)));
+        writer.write(",\"total\":");
+        writer.write(Double.toString(rs.getDouble(5)));
+        writer.write(",\"memo\":");
+        writeJsonString(writer, rs.getString(6));
+        writer.write("}\n");
+    }
+
+    static void writeJsonString(Writer writer, String value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+}
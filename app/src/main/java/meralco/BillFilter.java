@@ -0,0 +1,179 @@
+package meralco;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// A WHERE clause over the bills table plus its parameters. The typed filters
+// compare columns directly so SQLite can answer them from the id primary key
+// and the timestamp and rate indexes instead of scanning every row; memo
+// searches go through the bills_fts full-text index.
+class BillFilter {
+    static final BillFilter ALL = new BillFilter("", Collections.emptyList());
+
+    // Marks around matched terms in memo snippets (see BillTableModel)
+    static final char HIGHLIGHT_START = '\u0002';
+    static final char HIGHLIGHT_END = '\u0003';
+
+    private static final String FTS_FROM = "bills JOIN bills_fts ON bills_fts.rowid = bills.id";
+    private static final String FTS_SNIPPET = "snippet(bills_fts, 0, char(2), char(3), '…', 12)";
+
+    static final String ID_HELP = "Enter an ID (e.g. 42) or a range (e.g. 10..20).";
+    static final String DATE_HELP = "Enter a date (YYYY-MM-DD), month (YYYY-MM), year (YYYY) or a range (e.g. 2024-01..2024-06).";
+    static final String RATE_HELP = "Enter a rate (e.g. 11.4) or a range (e.g. 10..12.5).";
+
+    private final String whereClause;
+    private final List<Object> params;
+    private final String from;
+    private final String rankOrder;
+    private final String memoSnippet;
+
+    private BillFilter(String whereClause, List<Object> params) {
+        this(whereClause, params, "bills", null, null);
+    }
+
+    private BillFilter(String whereClause, List<Object> params, String from, String rankOrder, String memoSnippet) {
+        this.whereClause = whereClause;
+        this.params = params;
+        this.from = from;
+        this.rankOrder = rankOrder;
+        this.memoSnippet = memoSnippet;
+    }
+
+    // Condition without the WHERE keyword; empty when the filter matches everything.
+    String getWhereClause() {
+        return whereClause;
+    }
+
+    List<Object> getParams() {
+        return params;
+    }
+
+    // " WHERE ..." or an empty string, ready to append to a FROM clause.
+    String toSql() {
+        return whereClause.isEmpty() ? "" : " WHERE " + whereClause;
+    }
+
+    // Table expression to select from; bills columns must be qualified with "bills."
+    String getFrom() {
+        return from;
+    }
+
+    // ORDER BY clause for relevance-ranked filters, or null to use the caller's order.
+    String getRankOrder() {
+        return rankOrder;
+    }
+
+    // Expression for a highlighted memo snippet, or null when there is none.
+    String getMemoSnippet() {
+        return memoSnippet;
+    }
+
+    // This filter restricted to one account's bills, keeping its ranking and
+    // snippet; a leading account_id term lets SQLite use the account index.
+    BillFilter inAccount(int accountId) {
+        List<Object> accountParams = new ArrayList<>(params.size() + 1);
+        accountParams.add(accountId);
+        accountParams.addAll(params);
+        String clause = whereClause.isEmpty()
+                ? "bills.account_id = ?"
+                : "bills.account_id = ? AND (" + whereClause + ")";
+        return new BillFilter(clause, Collections.unmodifiableList(accountParams), from, rankOrder, memoSnippet);
+    }
+
+    static BillFilter where(String whereClause, Object... params) {
+        return new BillFilter(whereClause, Collections.unmodifiableList(new ArrayList<>(Arrays.asList(params))));
+    }
+
+    // ID: a single id or an inclusive range "from..to".
+    static BillFilter byId(String term) {
+        String[] bounds = splitRange(term);
+        try {
+            if (bounds == null) {
+                return where("bills.id = ?", Integer.parseInt(term.trim()));
+            }
+            return where("bills.id BETWEEN ? AND ?", Integer.parseInt(bounds[0]), Integer.parseInt(bounds[1]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(ID_HELP);
+        }
+    }
+
+    // Date: a day, month or year, or an inclusive range of those. Timestamps are
+    // stored as "YYYY-MM-DD HH:MM:SS" text, so a half-open string range is exact.
+    static BillFilter byDate(String term) {
+        String[] bounds = splitRange(term);
+        try {
+            LocalDate from = startOf(bounds == null ? term.trim() : bounds[0]);
+            LocalDate until = endOf(bounds == null ? term.trim() : bounds[1]);
+            return where("bills.timestamp >= ? AND bills.timestamp < ?", from.toString(), until.toString());
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException(DATE_HELP);
+        }
+    }
+
+    // Rate: a number matches every rate that starts with it (11.4 matches
+    // 11.4000 to 11.4999), or an inclusive range "from..to".
+    static BillFilter byRate(String term) {
+        String[] bounds = splitRange(term);
+        try {
+            if (bounds == null) {
+                BigDecimal value = new BigDecimal(term.trim());
+                BigDecimal step = BigDecimal.ONE.movePointLeft(Math.max(value.scale(), 0));
+                return where("bills.rate >= ? AND bills.rate < ?", value.doubleValue(), value.add(step).doubleValue());
+            }
+            return where("bills.rate BETWEEN ? AND ?", Double.parseDouble(bounds[0]), Double.parseDouble(bounds[1]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(RATE_HELP);
+        }
+    }
+
+    // Memo: every word must appear, as a whole word or a word prefix, ranked by
+    // relevance. Words are quoted so FTS5 operators in the input are literal.
+    static BillFilter byMemo(String term) {
+        StringBuilder match = new StringBuilder();
+        for (String word : term.trim().split("\\s+")) {
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append('"').append(word.replace("\"", "\"\"")).append("\"*");
+        }
+        return new BillFilter("bills_fts MATCH ?", Collections.singletonList(match.toString()),
+                FTS_FROM, "bills_fts.rank, bills.timestamp DESC", FTS_SNIPPET);
+    }
+
+    private static String[] splitRange(String term) {
+        int separator = term.indexOf("..");
+        if (separator < 0) {
+            return null;
+        }
+        return new String[]{term.substring(0, separator).trim(), term.substring(separator + 2).trim()};
+    }
+
+    private static LocalDate startOf(String date) {
+        switch (date.length()) {
+            case 4:
+                return LocalDate.of(Integer.parseInt(date), 1, 1);
+            case 7:
+                return YearMonth.parse(date).atDay(1);
+            default:
+                return LocalDate.parse(date);
+        }
+    }
+
+    // First day after the period
+    private static LocalDate endOf(String date) {
+        switch (date.length()) {
+            case 4:
+                return LocalDate.of(Integer.parseInt(date) + 1, 1, 1);
+            case 7:
+                return YearMonth.parse(date).plusMonths(1).atDay(1);
+            default:
+                return LocalDate.parse(date).plusDays(1);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package meralco;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+// Fills a new bills database with synthetic monthly bills for load and scale
+// testing. The same seed always produces the same rows.
+//
+// Rows come from a fleet of meters read once a month, oldest month first, so
+// ids and timestamps rise together the way saved bills do. Each meter's
+// register only goes up: a bill's kWh is the difference between two whole
+// readings, and the reading is kept in the memo ("Meter 00042 reading 012345",
+// sometimes followed by a note). Each meter is its own account, named after
+// it. Usage peaks in the April-May hot season, the month's rate drifts upwards
+// as a random walk shared by every meter, and ids are skipped at random so the
+// ID allocator has gaps to fill.
+final class BillGenerator {
+    // Bills run over the 20 years from January 2005
+    private static final YearMonth START = YearMonth.of(2005, 1);
+    private static final int MONTHS = 240;
+
+    private static final String[] NOTES = {"aircon", "ref", "washer", "heater", "vacation", "guests",
+            "rainy", "summer", "outage", "estimated", "corrected", "holiday", "office", "laptop"};
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // Readings of a month fall within its first 28 days
+    private static final long BILLING_SECONDS = 28L * 24 * 3600;
+
+    private final long seed;
+    private final double idGapRate;
+
+    // idGapRate is the share of ids left unused, from 0 (none) up to 0.9
+    BillGenerator(long seed, double idGapRate) {
+        if (idGapRate < 0 || idGapRate > 0.9) {
+            throw new IllegalArgumentException("ID gap rate must be between 0 and 0.9");
+        }
+        this.seed = seed;
+        this.idGapRate = idGapRate;
+    }
+
+    // Writes `rows` bills into the database at url, which must not have a
+    // bills table yet. The rows go into a bare table with journaling off, and
+    // BillDatabase.open then builds the indexes, memo index and monthly
+    // summary in one pass each, which is far quicker than keeping them
+    // current row by row. Returns the highest id written.
+    int generate(String url, int rows, BillExporter.ProgressListener listener)
+            throws ClassNotFoundException, SQLException {
+        if (rows < 0) {
+            throw new IllegalArgumentException("Rows must not be negative");
+        }
+        Class.forName("org.sqlite.JDBC");
+        int lastId;
+        try (Connection connection = DriverManager.getConnection(url)) {
+            try (Statement stmt = connection.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'bills'")) {
+                    if (rs.next()) {
+                        throw new SQLException("The database already has a bills table");
+                    }
+                }
+                // A half-written file is thrown away, so there is nothing to protect
+                stmt.execute("PRAGMA journal_mode = OFF");
+                stmt.execute("PRAGMA synchronous = OFF");
+                BillDatabase.createBillsTable(stmt);
+                BillDatabase.createAccountsTable(stmt);
+            }
+            lastId = insertRows(connection, rows, listener);
+        }
+
+        BillDatabase.open(url).close();
+        return lastId;
+    }
+
+    private int insertRows(Connection connection, int rows, BillExporter.ProgressListener listener) throws SQLException {
+        Random random = new Random(seed);
+        // Enough meters that the rows span all 20 years
+        int meters = Math.max(1, (int) ((rows + (long) MONTHS - 1) / MONTHS));
+        double[] baseKwh = new double[meters];
+        long[] readings = new long[meters];
+        for (int m = 0; m < meters; m++) {
+            // Households use roughly 80 to 600 kWh a month, most near 200
+            baseKwh[m] = Math.min(600, Math.max(80, 200 * Math.exp(0.4 * random.nextGaussian())));
+            readings[m] = random.nextInt(20_000);
+        }
+
+        String sql = "INSERT INTO bills (id, kwh, rate, total, timestamp, memo, account_id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        connection.setAutoCommit(false);
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            // Meter m is account m + 1, so the first one takes over the default account
+            try (PreparedStatement accounts = connection.prepareStatement(
+                    "INSERT OR REPLACE INTO accounts (id, name) VALUES (?, ?)")) {
+                for (int m = 0; m < meters; m++) {
+                    accounts.setInt(1, m + 1);
+                    accounts.setString(2, String.format("Meter %05d", m + 1));
+                    accounts.addBatch();
+                }
+                accounts.executeBatch();
+            }
+
+            int id = 0;
+            int written = 0;
+            double rate = 9.0;
+            for (int month = 0; written < rows; month++) {
+                YearMonth yearMonth = START.plusMonths(month);
+                LocalDateTime monthStart = yearMonth.atDay(1).atStartOfDay();
+                // Positive on average: rates rise about 2.5% a year
+                rate = Math.min(25, Math.max(5, rate * (1.002 + 0.008 * random.nextGaussian())));
+                double monthRate = Math.round(rate * 10_000) / 10_000.0;
+                double season = 1 + 0.3 * Math.cos(2 * Math.PI * (yearMonth.getMonthValue() - 4.5) / 12);
+
+                for (int m = 0; m < meters && written < rows; m++) {
+                    do {
+                        id++;
+                    } while (idGapRate > 0 && random.nextDouble() < idGapRate);
+
+                    long used = Math.max(1, Math.round(baseKwh[m] * season * (1 + 0.1 * random.nextGaussian())));
+                    readings[m] += used;
+                    LocalDateTime timestamp = monthStart.plusSeconds(BILLING_SECONDS * m / meters);
+
+                    pstmt.setInt(1, id);
+                    pstmt.setDouble(2, used);
+                    pstmt.setDouble(3, monthRate);
+                    pstmt.setDouble(4, used * monthRate);
+                    pstmt.setString(5, timestamp.format(TIMESTAMP));
+                    pstmt.setString(6, memo(random, m, readings[m]));
+                    pstmt.setInt(7, m + 1);
+                    pstmt.addBatch();
+
+                    if (++written % BillImporter.CHUNK_SIZE == 0) {
+                        pstmt.executeBatch();
+                        connection.commit();
+                        if (listener != null) {
+                            listener.progress(written);
+                        }
+                    }
+                }
+            }
+            pstmt.executeBatch();
+            connection.commit();
+            if (listener != null && written % BillImporter.CHUNK_SIZE != 0) {
+                listener.progress(written);
+            }
+            return id;
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static String memo(Random random, int meter, long reading) {
+        StringBuilder memo = new StringBuilder(40);
+        memo.append(String.format("Meter %05d reading %06d", meter + 1, reading));
+        if (random.nextInt(4) == 0) {
+            int words = 1 + random.nextInt(3);
+            for (int i = 0; i < words; i++) {
+                memo.append(' ').append(NOTES[random.nextInt(NOTES.length)]);
+            }
+        }
+        return memo.toString();
+    }
+}
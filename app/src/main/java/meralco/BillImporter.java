@@ -0,0 +1,132 @@
+package meralco;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.*;
+import java.util.List;
+
+// Streams bill rows from CSV into the bills table. Rows are checked and priced
+// as Reading.parse does and inserted with JDBC batches, committing once per
+// chunk instead of once per row.
+//
+// Columns: id, date, kwh, rate, memo, total (see Reading). A blank id gets the
+// next free ID, and a first row starting with "id" is treated as a header.
+class BillImporter {
+    static final int CHUNK_SIZE = 10_000;
+
+    interface Listener {
+        // Called after each committed chunk
+        void progress(long rowsRead, long rowsImported);
+
+        void rejected(long lineNumber, String reason);
+    }
+
+    static final class Result implements OperationMetrics.RowCounted {
+        final long imported;
+        final long rejected;
+
+        Result(long imported, long rejected) {
+            this.imported = imported;
+            this.rejected = rejected;
+        }
+
+        @Override
+        public long rowCount() {
+            return imported;
+        }
+    }
+
+    private final Connection connection;
+    private final int accountId;
+    private final IdAllocator idAllocator;
+    private final BillPricer pricer;
+
+    // Rows are added to the given account. The allocator is updated as rows
+    // are accepted; reload it afterwards if the import fails part way.
+    BillImporter(Connection connection, int accountId, IdAllocator idAllocator, BillPricer pricer) {
+        this.connection = connection;
+        this.accountId = accountId;
+        this.idAllocator = idAllocator;
+        this.pricer = pricer;
+    }
+
+    Result importCsv(Reader in, Listener listener) throws IOException, SQLException {
+        CsvReader csv = new CsvReader(in);
+        String sql = "INSERT INTO bills (id, kwh, rate, total, timestamp, memo, account_id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        long rowsRead = 0;
+        long imported = 0;
+        long rejected = 0;
+        int batched = 0;
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            long lineNumber = csv.getLineNumber();
+            List<String> fields;
+            while ((fields = csv.readRecord()) != null) {
+                boolean blank = fields.size() == 1 && fields.get(0).trim().isEmpty();
+                if (blank || (lineNumber == 1 && fields.get(0).trim().equalsIgnoreCase("id"))) {
+                    lineNumber = csv.getLineNumber();
+                    continue;
+                }
+                rowsRead++;
+
+                String error = bindRow(pstmt, fields);
+                if (error != null) {
+                    rejected++;
+                    listener.rejected(lineNumber, error);
+                } else {
+                    pstmt.addBatch();
+                    if (++batched == CHUNK_SIZE) {
+                        pstmt.executeBatch();
+                        connection.commit();
+                        imported += batched;
+                        batched = 0;
+                        listener.progress(rowsRead, imported);
+                    }
+                }
+                lineNumber = csv.getLineNumber();
+            }
+
+            if (batched > 0) {
+                pstmt.executeBatch();
+                connection.commit();
+                imported += batched;
+            }
+            listener.progress(rowsRead, imported);
+            return new Result(imported, rejected);
+        } catch (SQLException | IOException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    // Binds one row, or returns why it was rejected.
+    private String bindRow(PreparedStatement pstmt, List<String> fields) throws SQLException {
+        Reading reading;
+        try {
+            reading = Reading.parse(fields, pricer);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+
+        int id = reading.id;
+        if (id == 0) {
+            id = idAllocator.nextId();
+        } else if (idAllocator.isUsed(id)) {
+            return "ID " + id + " already exists";
+        }
+        idAllocator.markUsed(id);
+
+        pstmt.setInt(1, id);
+        pstmt.setDouble(2, reading.kwh);
+        pstmt.setDouble(3, reading.rate);
+        pstmt.setDouble(4, reading.total);
+        pstmt.setString(5, reading.timestamp);
+        pstmt.setString(6, reading.memo);
+        pstmt.setInt(7, accountId);
+        return null;
+    }
+}
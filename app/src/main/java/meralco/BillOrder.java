@@ -0,0 +1,79 @@
+package meralco;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+// Order of the records table: by date or by id, in either direction. Date order
+// breaks ties by id, so every row has a unique key and its position can be
+// found with an index range count instead of reading the rows before it.
+final class BillOrder {
+    static final BillOrder NEWEST_FIRST = new BillOrder(true, true);
+    static final BillOrder OLDEST_FIRST = new BillOrder(true, false);
+    static final BillOrder ID_ASCENDING = new BillOrder(false, false);
+    static final BillOrder ID_DESCENDING = new BillOrder(false, true);
+
+    private final boolean byTimestamp;
+    private final boolean descending;
+
+    private BillOrder(boolean byTimestamp, boolean descending) {
+        this.byTimestamp = byTimestamp;
+        this.descending = descending;
+    }
+
+    // ORDER BY clause without the keywords
+    String toSql() {
+        String direction = descending ? " DESC" : " ASC";
+        return byTimestamp ? "bills.timestamp" + direction + ", bills.id" + direction : "bills.id" + direction;
+    }
+
+    // Condition for rows that sort before the key; bind the key with bindKey.
+    String beforeKey() {
+        return keyColumns() + (descending ? " > " : " < ") + keyParams();
+    }
+
+    // Condition for rows that sort at or after the key; bind the key with bindKey.
+    String atOrAfterKey() {
+        return keyColumns() + (descending ? " <= " : " >= ") + keyParams();
+    }
+
+    int bindKey(PreparedStatement pstmt, int index, Key key) throws SQLException {
+        if (byTimestamp) {
+            pstmt.setString(index++, key.timestamp);
+        }
+        pstmt.setInt(index++, key.id);
+        return index;
+    }
+
+    // Negative when a sorts before b, as in a Comparator.
+    int compare(Key a, Key b) {
+        int result = byTimestamp ? a.timestamp.compareTo(b.timestamp) : 0;
+        if (result == 0) {
+            result = Integer.compare(a.id, b.id);
+        }
+        return descending ? -result : result;
+    }
+
+    private String keyColumns() {
+        return byTimestamp ? "(bills.timestamp, bills.id)" : "bills.id";
+    }
+
+    private String keyParams() {
+        return byTimestamp ? "(?, ?)" : "?";
+    }
+
+    @Override
+    public String toString() {
+        return toSql();
+    }
+
+    // Sort key of one row
+    static final class Key {
+        final String timestamp;
+        final int id;
+
+        Key(String timestamp, int id) {
+            this.timestamp = timestamp;
+            this.id = id;
+        }
+    }
+}
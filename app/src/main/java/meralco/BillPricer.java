@@ -0,0 +1,59 @@
+package meralco;
+
+import java.util.Locale;
+
+// Prices a reading the way Calculate does: at the rate given, else at the rate
+// scheduled for its date, else with the tariff (the itemized total, and the
+// average rate it works out to, to six decimals as the rate field shows it).
+// Safe to share between threads, since the schedule is an immutable snapshot
+// and the tariff never changes.
+final class BillPricer {
+    static final String GIVEN = "given";
+    static final String SCHEDULED = "scheduled";
+    static final String TARIFF = "tariff";
+
+    static final class Price {
+        final double rate;
+        final double total;
+        // GIVEN, SCHEDULED or TARIFF
+        final String source;
+
+        Price(double rate, double total, String source) {
+            this.rate = rate;
+            this.total = total;
+            this.source = source;
+        }
+    }
+
+    private final RateSchedule rateSchedule;
+    private final TariffEngine tariff;
+
+    // The tariff may be null
+    BillPricer(RateSchedule rateSchedule, TariffEngine tariff) {
+        this.rateSchedule = rateSchedule;
+        this.tariff = tariff;
+    }
+
+    TariffEngine getTariff() {
+        return tariff;
+    }
+
+    // Price of kwh at rate, or with rate null as described above; null if no
+    // rate is scheduled for the date (which may be null) and there is no tariff.
+    // Throws DateTimeParseException for a date that does not exist.
+    Price price(double kwh, Double rate, String date) {
+        if (rate != null) {
+            return new Price(rate, MeralcoBill.calculateTotal(kwh, rate), GIVEN);
+        }
+        Double scheduled = date == null ? null : rateSchedule.rateOn(date);
+        if (scheduled != null) {
+            return new Price(scheduled, MeralcoBill.calculateTotal(kwh, scheduled), SCHEDULED);
+        }
+        if (tariff == null) {
+            return null;
+        }
+        TariffEngine.Bill bill = tariff.calculate(kwh);
+        return new Price(Double.parseDouble(String.format(Locale.ROOT, "%.6f", bill.getEffectiveRate())),
+                bill.getTotal().doubleValue(), TARIFF);
+    }
+}
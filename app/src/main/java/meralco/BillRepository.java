@@ -0,0 +1,255 @@
+package meralco;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Persistence for the bills table. Each distinct SQL text is prepared once per
+// connection and reused; the statements stay open until they fall out of the
+// cache or the repository is closed. Not thread-safe: apart from interrupt(),
+// use it only from the database thread.
+class BillRepository implements AutoCloseable, DatabaseExecutor.Interruptible {
+    static final int MAX_CACHED_STATEMENTS = 32;
+
+    private static final String INSERT_SQL = "INSERT INTO bills (id, kwh, rate, total, timestamp, memo, account_id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE bills SET id = ?, kwh = ?, rate = ?, total = ?, timestamp = ?, memo = ? WHERE id = ?";
+    private static final String DELETE_SQL = "DELETE FROM bills WHERE id = ?";
+    private static final String EXISTS_SQL = "SELECT 1 FROM bills WHERE id = ?";
+    private static final String SELECT_COLUMNS = "bills.id, bills.timestamp, bills.kwh, bills.rate, bills.total, bills.memo";
+
+    private final Connection connection;
+    // Statement most recently handed out, and whether interrupt() was called
+    private volatile PreparedStatement lastPrepared;
+    private volatile boolean interrupted;
+
+    // Most recently used statements, keyed by SQL text
+    private final Map<String, PreparedStatement> statements =
+            new LinkedHashMap<String, PreparedStatement>(MAX_CACHED_STATEMENTS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() > MAX_CACHED_STATEMENTS) {
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    BillRepository(Connection connection) {
+        this.connection = connection;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    // Cached statement for the SQL text. Callers bind parameters and close any
+    // result set they open, but never close the statement itself.
+    PreparedStatement prepare(String sql) throws SQLException {
+        if (interrupted) {
+            throw new SQLException("Query interrupted");
+        }
+        PreparedStatement pstmt = statements.get(sql);
+        if (pstmt == null) {
+            pstmt = connection.prepareStatement(sql);
+            statements.put(sql, pstmt);
+        }
+        lastPrepared = pstmt;
+        return pstmt;
+    }
+
+    // Stops the read running on this reader connection: the statement executing
+    // is cancelled and later ones fail to prepare until clearInterrupt().
+    // SQLite interrupts whatever the connection is running, so DatabaseExecutor
+    // only calls this while the read to stop is the one running.
+    @Override
+    public void interrupt() {
+        interrupted = true;
+        PreparedStatement pstmt = lastPrepared;
+        if (pstmt == null) {
+            return;
+        }
+        try {
+            pstmt.cancel();
+        } catch (SQLException e) {
+            System.err.println("Error cancelling statement: " + e.getMessage());
+        }
+    }
+
+    // A statement stopped part way can't be executed again, so after an
+    // interrupt every cached statement is closed and prepared afresh.
+    @Override
+    public void clearInterrupt() {
+        if (interrupted) {
+            close();
+            interrupted = false;
+        }
+    }
+
+    // Runs work as one unit: its writes commit together, with one sync, or
+    // roll back together if it throws. A call inside another joins the outer
+    // unit.
+    <T> T inTransaction(DatabaseExecutor.DbTask<T> work) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            return work.call();
+        }
+        connection.setAutoCommit(false);
+        try {
+            T result = work.call();
+            connection.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    boolean idExists(int id) throws SQLException {
+        PreparedStatement pstmt = prepare(EXISTS_SQL);
+        pstmt.setInt(1, id);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            return rs.next();
+        }
+    }
+
+    void insert(int accountId, int id, double kwh, double rate, double total, String timestamp, String memo)
+            throws SQLException {
+        PreparedStatement pstmt = prepare(INSERT_SQL);
+        pstmt.setInt(1, id);
+        pstmt.setDouble(2, kwh);
+        pstmt.setDouble(3, rate);
+        pstmt.setDouble(4, total);
+        pstmt.setString(5, timestamp);
+        pstmt.setString(6, memo);
+        pstmt.setInt(7, accountId);
+        pstmt.executeUpdate();
+    }
+
+    // Rewrites bill id, moving it to newId (which may equal id) in the same
+    // statement; the memo index and monthly summary follow through triggers.
+    int update(int id, int newId, double kwh, double rate, double total, String timestamp, String memo)
+            throws SQLException {
+        PreparedStatement pstmt = prepare(UPDATE_SQL);
+        pstmt.setInt(1, newId);
+        pstmt.setDouble(2, kwh);
+        pstmt.setDouble(3, rate);
+        pstmt.setDouble(4, total);
+        pstmt.setString(5, timestamp);
+        pstmt.setString(6, memo);
+        pstmt.setInt(7, id);
+        return pstmt.executeUpdate();
+    }
+
+    int delete(int id) throws SQLException {
+        PreparedStatement pstmt = prepare(DELETE_SQL);
+        pstmt.setInt(1, id);
+        return pstmt.executeUpdate();
+    }
+
+    int count(BillFilter filter) throws SQLException {
+        PreparedStatement pstmt = prepare("SELECT COUNT(*) FROM " + filter.getFrom() + filter.toSql());
+        bind(pstmt, 1, filter.getParams());
+        try (ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // One page of bills matching the filter. Columns are id, timestamp, kwh,
+    // rate, total, memo, then the memo snippet for filters that have one.
+    // Relevance-ranked filters use their own order. Close the result set.
+    ResultSet queryPage(BillFilter filter, BillOrder order, int limit, int offset) throws SQLException {
+        String snippet = filter.getMemoSnippet();
+        String orderBy = filter.getRankOrder() != null ? filter.getRankOrder() : order.toSql();
+        String sql = "SELECT " + SELECT_COLUMNS + (snippet != null ? ", " + snippet : "") +
+                " FROM " + filter.getFrom() + filter.toSql() +
+                " ORDER BY " + orderBy + " LIMIT ? OFFSET ?";
+        PreparedStatement pstmt = prepare(sql);
+        int index = bind(pstmt, 1, filter.getParams());
+        pstmt.setInt(index++, limit);
+        pstmt.setInt(index, offset);
+        return pstmt.executeQuery();
+    }
+
+    // One bill by id, with the same columns as queryPage. Close the result set.
+    ResultSet queryById(int id) throws SQLException {
+        PreparedStatement pstmt = prepare("SELECT " + SELECT_COLUMNS + " FROM bills WHERE id = ?");
+        pstmt.setInt(1, id);
+        return pstmt.executeQuery();
+    }
+
+    // Whether the bill with this id matches the filter; a primary key lookup.
+    boolean matches(BillFilter filter, int id) throws SQLException {
+        if (filter.getWhereClause().isEmpty()) {
+            return idExists(id);
+        }
+        PreparedStatement pstmt = prepare("SELECT 1 FROM " + filter.getFrom() +
+                " WHERE (" + filter.getWhereClause() + ") AND bills.id = ?");
+        int index = bind(pstmt, 1, filter.getParams());
+        pstmt.setInt(index, id);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            return rs.next();
+        }
+    }
+
+    // Number of bills matching the filter that sort at or after the key `from`
+    // and before the key `to`, leaving out either bound that is null, and
+    // counting no further than limit (-1 for no limit). SQLite answers this
+    // from the order's index without reading the rows.
+    int countBetween(BillFilter filter, BillOrder order, BillOrder.Key from, BillOrder.Key to, int limit)
+            throws SQLException {
+        List<String> conditions = new ArrayList<>();
+        if (!filter.getWhereClause().isEmpty()) {
+            conditions.add("(" + filter.getWhereClause() + ")");
+        }
+        if (from != null) {
+            conditions.add(order.atOrAfterKey());
+        }
+        if (to != null) {
+            conditions.add(order.beforeKey());
+        }
+        String sql = "SELECT COUNT(*) FROM (SELECT 1 FROM " + filter.getFrom() +
+                (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions)) + " LIMIT ?)";
+
+        PreparedStatement pstmt = prepare(sql);
+        int index = bind(pstmt, 1, filter.getParams());
+        if (from != null) {
+            index = order.bindKey(pstmt, index, from);
+        }
+        if (to != null) {
+            index = order.bindKey(pstmt, index, to);
+        }
+        pstmt.setInt(index, limit);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    static int bind(PreparedStatement pstmt, int index, List<Object> params) throws SQLException {
+        for (Object param : params) {
+            pstmt.setObject(index++, param);
+        }
+        return index;
+    }
+
+    // Closes the cached statements; the connection is left open.
+    @Override
+    public void close() {
+        for (PreparedStatement pstmt : statements.values()) {
+            closeQuietly(pstmt);
+        }
+        statements.clear();
+        lastPrepared = null;
+    }
+
+    private static void closeQuietly(Statement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing statement: " + e.getMessage());
+        }
+    }
+}
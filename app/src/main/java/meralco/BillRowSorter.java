@@ -0,0 +1,119 @@
+package meralco;
+
+import javax.swing.SortOrder;
+import javax.swing.table.TableRowSorter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Sorts the records table in memory. The sorter is handed model row indexes
+// instead of cell values, and each column's comparator reads the primitive
+// column straight from the model, so sorting boxes nothing per comparison.
+// Only a resident result can be sorted. A paged one, or one ranked by relevance,
+// keeps its query order, and the sort keys wait until the next resident result.
+class BillRowSorter extends TableRowSorter<BillTableModel> {
+    private final BillTableModel model;
+
+    // Boxed row indexes handed to the comparators, shared across sorts
+    private Integer[] rowIndexes = new Integer[0];
+
+    BillRowSorter(BillTableModel model) {
+        super(model);
+        this.model = model;
+        setModelWrapper(new RowIndexWrapper());
+        setSortsOnUpdates(true);
+        setMaxSortKeys(2);
+
+        setComparator(0, (Integer a, Integer b) -> Integer.compare(model.getRecordId(a), model.getRecordId(b)));
+        setComparator(1, (Integer a, Integer b) -> compareText(model.getTimestamp(a), model.getTimestamp(b)));
+        setComparator(2, (Integer a, Integer b) -> Double.compare(model.getKwh(a), model.getKwh(b)));
+        setComparator(3, (Integer a, Integer b) -> Double.compare(model.getRate(a), model.getRate(b)));
+        setComparator(4, (Integer a, Integer b) -> Double.compare(model.getTotal(a), model.getTotal(b)));
+        setComparator(5, (Integer a, Integer b) -> compareText(model.getMemo(a), model.getMemo(b)));
+    }
+
+    // Sort keys for one of the table's standard orders.
+    static List<SortKey> keysFor(BillOrder order) {
+        if (order == BillOrder.NEWEST_FIRST) {
+            return Arrays.asList(new SortKey(1, SortOrder.DESCENDING), new SortKey(0, SortOrder.DESCENDING));
+        } else if (order == BillOrder.OLDEST_FIRST) {
+            return Arrays.asList(new SortKey(1, SortOrder.ASCENDING), new SortKey(0, SortOrder.ASCENDING));
+        } else if (order == BillOrder.ID_DESCENDING) {
+            return Collections.singletonList(new SortKey(0, SortOrder.DESCENDING));
+        }
+        return Collections.singletonList(new SortKey(0, SortOrder.ASCENDING));
+    }
+
+    // Empty while the model is paged or ranked, which also leaves the view unsorted.
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortsModel() ? super.getSortKeys() : Collections.<SortKey>emptyList();
+    }
+
+    @Override
+    public boolean isSortable(int column) {
+        return sortsModel() && super.isSortable(column);
+    }
+
+    // Whether the current result may be reordered here
+    private boolean sortsModel() {
+        return model.isResident() && model.getFilter().getRankOrder() == null;
+    }
+
+    // The comparators work on the model, never on cell text
+    @Override
+    protected boolean useToString(int column) {
+        return false;
+    }
+
+    private static int compareText(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        return a.compareTo(b);
+    }
+
+    private Integer rowIndex(int row) {
+        if (row >= rowIndexes.length) {
+            int oldLength = rowIndexes.length;
+            rowIndexes = Arrays.copyOf(rowIndexes, Math.max(row + 1, model.getRowCount()));
+            for (int i = oldLength; i < rowIndexes.length; i++) {
+                rowIndexes[i] = i;
+            }
+        }
+        return rowIndexes[row];
+    }
+
+    private final class RowIndexWrapper extends ModelWrapper<BillTableModel, Integer> {
+        @Override
+        public BillTableModel getModel() {
+            return model;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return model.getColumnCount();
+        }
+
+        @Override
+        public int getRowCount() {
+            return model.getRowCount();
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return rowIndex(row);
+        }
+
+        @Override
+        public String getStringValueAt(int row, int column) {
+            Object value = model.getValueAt(row, column);
+            return value == null ? "" : value.toString();
+        }
+
+        @Override
+        public Integer getIdentifier(int row) {
+            return rowIndex(row);
+        }
+    }
+}
@@ -0,0 +1,596 @@
+package meralco;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Embedded HTTP/JSON API over a bills database (--serve), built on the JDK's
+// com.sun.net.httpserver:
+//
+//   POST   /api/calculate     {"kwh": 250, "rate": 11.5, "date": "2024-05-01"}  rate and date optional
+//   GET    /api/bills         ?by=id|date|rate|memo&q=...&order=newest|oldest|id|id-desc&limit=50&offset=0
+//   POST   /api/bills         {"id": 7, "date": "2024-05-01", "kwh": 250, "rate": 11.5, "memo": "..."}
+//   GET    /api/bills/{id}
+//   PUT    /api/bills/{id}    same body; an "id" other than {id} moves the bill to it
+//   DELETE /api/bills/{id}
+//   GET    /api/estimate
+//
+// Bills are listed, created and estimated in the account given by ?account=,
+// else the server's account. Readings are checked and priced as Calculate does
+// (see Reading); bills are returned with BillExporter's JSON fields.
+//
+// Requests run on virtual threads where the JVM has them (Java 21+), else on
+// a fixed pool. Reads borrow a repository over one of a pool of read-only
+// connections, so they run side by side. Writes are handed to one writer
+// thread that owns the read-write connection and the ID allocator, so they are
+// serialized as the window's are. Database calls are timed in the DATABASE
+// phase of the metrics.
+final class BillServer {
+    // Request threads when virtual threads are not available
+    private static final int FALLBACK_THREADS = 64;
+    private static final int MAX_BODY_BYTES = 1 << 20;
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 1000;
+
+    // An error reported to the client with its HTTP status
+    private static final class HttpError extends RuntimeException {
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private interface Route {
+        // The response body, or null for 204 No Content
+        String handle(HttpExchange exchange) throws IOException, SQLException, InterruptedException;
+    }
+
+    private final String url;
+    private final int defaultAccount;
+    private final OperationMetrics metrics;
+
+    private Connection connection;
+    private BillRepository writerRepository;
+    private final IdAllocator idAllocator = new IdAllocator(); // only touched on the writer thread
+    private final RateSchedule rateSchedule = new RateSchedule();
+    private BillPricer pricer;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "api writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private BlockingQueue<BillRepository> readers;
+    private ExecutorService requestThreads;
+    private HttpServer server;
+
+    BillServer(String url, int defaultAccount, OperationMetrics metrics) {
+        this.url = url;
+        this.defaultAccount = defaultAccount;
+        this.metrics = metrics;
+    }
+
+    // Opens the database and readerCount read-only connections, then starts
+    // listening. The tariff may be null.
+    void start(InetSocketAddress address, int readerCount, TariffEngine tariff)
+            throws ClassNotFoundException, SQLException, IOException {
+        connection = BillDatabase.open(url);
+        writerRepository = new BillRepository(connection);
+        idAllocator.load(connection);
+        rateSchedule.load(connection);
+        pricer = new BillPricer(rateSchedule, tariff);
+        readers = new ArrayBlockingQueue<>(readerCount);
+        for (int i = 0; i < readerCount; i++) {
+            readers.add(new BillRepository(BillDatabase.openReadOnly(url)));
+        }
+
+        requestThreads = requestThreads();
+        server = HttpServer.create(address, 0);
+        server.createContext("/api/calculate", exchange -> serve(exchange, "POST", this::calculate));
+        server.createContext("/api/bills", exchange -> serve(exchange, null, this::bills));
+        server.createContext("/api/estimate", exchange -> serve(exchange, "GET", this::estimate));
+        server.setExecutor(requestThreads);
+        server.start();
+    }
+
+    InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    // Stops listening, lets queued writes finish and closes the connections.
+    void stop() {
+        server.stop(1);
+        requestThreads.shutdown();
+        writer.execute(() -> {
+            writerRepository.close();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing database: " + e.getMessage());
+            }
+        });
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        BillRepository reader;
+        while ((reader = readers.poll()) != null) {
+            reader.close();
+            try {
+                reader.getConnection().close();
+            } catch (SQLException e) {
+                System.err.println("Error closing reader: " + e.getMessage());
+            }
+        }
+    }
+
+    // One virtual thread per request on Java 21+, found reflectively since the
+    // code targets Java 8
+    private static ExecutorService requestThreads() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threads = new AtomicInteger();
+            return Executors.newFixedThreadPool(FALLBACK_THREADS, r -> {
+                Thread thread = new Thread(r, "api request " + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void serve(HttpExchange exchange, String method, Route route) throws IOException {
+        int status;
+        String body;
+        try {
+            if (method != null && !method.equals(exchange.getRequestMethod())) {
+                throw new HttpError(405, "use " + method);
+            }
+            body = route.handle(exchange);
+            boolean created = "POST".equals(exchange.getRequestMethod())
+                    && "/api/bills".equals(exchange.getHttpContext().getPath());
+            status = body == null ? 204 : created ? 201 : 200;
+        } catch (HttpError e) {
+            status = e.status;
+            body = error(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (SQLException e) {
+            status = 500;
+            body = error("database error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = 503;
+            body = error("server is stopping");
+        } catch (RuntimeException e) {
+            status = 500;
+            body = error(e.toString());
+        }
+
+        try {
+            if (body == null || "HEAD".equals(exchange.getRequestMethod())) {
+                // A HEAD response has no body, so none is sent or announced
+                exchange.sendResponseHeaders(status, -1);
+            } else {
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // POST /api/calculate
+    private String calculate(HttpExchange exchange) throws IOException {
+        Map<String, Object> body = readBody(exchange);
+        double kwh = number(body, "kwh");
+        Double rate = optionalNumber(body, "rate");
+        String date = optionalString(body, "date");
+        if (date != null && !Reading.TIMESTAMP_PATTERN.matcher(date).matches()) {
+            throw new IllegalArgumentException("date must be YYYY-MM-DD or YYYY-MM-DD HH:MM:SS");
+        }
+        BillPricer.Price price = Reading.price(kwh, rate, date, pricer);
+
+        StringWriter json = new StringWriter();
+        json.write("{\"kwh\":" + kwh + ",\"rate\":" + price.rate + ",\"total\":" + price.total + ",\"source\":");
+        BillExporter.writeJsonString(json, price.source);
+        if (BillPricer.TARIFF.equals(price.source)) {
+            json.write(",\"tariff\":");
+            BillExporter.writeJsonString(json, pricer.getTariff().getVersion());
+        }
+        json.write('}');
+        return json.toString();
+    }
+
+    // /api/bills and /api/bills/{id}
+    private String bills(HttpExchange exchange) throws IOException, SQLException, InterruptedException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        if (path.equals("/api/bills") || path.equals("/api/bills/")) {
+            if ("GET".equals(method)) {
+                return search(exchange);
+            }
+            if ("POST".equals(method)) {
+                return create(exchange);
+            }
+            throw new HttpError(405, "use GET or POST");
+        }
+
+        int id;
+        try {
+            id = Integer.parseInt(path.substring("/api/bills/".length()));
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            throw new HttpError(404, "no such resource: " + path);
+        }
+        switch (method) {
+            case "GET":
+                return read("get bill", reader -> {
+                    try (ResultSet rs = reader.queryById(id)) {
+                        if (!rs.next()) {
+                            throw new HttpError(404, "no bill with ID " + id);
+                        }
+                        return billJson(rs);
+                    }
+                });
+            case "PUT":
+                return update(exchange, id);
+            case "DELETE":
+                return write("delete bill", () -> {
+                    if (writerRepository.delete(id) == 0) {
+                        throw new HttpError(404, "no bill with ID " + id);
+                    }
+                    idAllocator.markFree(id);
+                    return null;
+                });
+            default:
+                throw new HttpError(405, "use GET, PUT or DELETE");
+        }
+    }
+
+    // GET /api/bills
+    private String search(HttpExchange exchange) throws SQLException, InterruptedException {
+        Map<String, String> query = query(exchange);
+        String by = query.get("by");
+        BillFilter filter = BillFilter.ALL;
+        if (by != null) {
+            filter = MeralcoBill.createSearchFilter(searchType(by), query.getOrDefault("q", ""));
+        }
+        BillFilter accountFilter = filter.inAccount(account(query));
+        BillOrder order = order(query.get("order"));
+        int limit = intParameter(query, "limit", DEFAULT_LIMIT);
+        int offset = intParameter(query, "offset", 0);
+        if (limit < 1 || limit > MAX_LIMIT || offset < 0) {
+            throw new IllegalArgumentException("limit must be 1 to " + MAX_LIMIT + " and offset not negative");
+        }
+
+        return read("search bills", reader -> {
+            StringWriter json = new StringWriter();
+            json.write("{\"count\":" + reader.count(accountFilter) + ",\"bills\":[");
+            try (ResultSet rs = reader.queryPage(accountFilter, order, limit, offset)) {
+                boolean first = true;
+                while (rs.next()) {
+                    if (!first) {
+                        json.write(',');
+                    }
+                    first = false;
+                    BillExporter.writeJsonRow(json, rs);
+                }
+            } catch (IOException e) {
+                throw new SQLException(e);
+            }
+            json.write("]}");
+            return json.toString();
+        });
+    }
+
+    // POST /api/bills
+    private String create(HttpExchange exchange) throws IOException, SQLException, InterruptedException {
+        int accountId = account(query(exchange));
+        Reading reading = reading(readBody(exchange));
+
+        return write("create bill", () -> {
+            requireAccount(accountId);
+            int id;
+            if (reading.id == 0) {
+                id = idAllocator.nextId();
+            } else if (idAllocator.isUsed(reading.id)) {
+                throw new HttpError(409, "ID " + reading.id + " already exists");
+            } else {
+                id = reading.id;
+            }
+            writerRepository.insert(accountId, id, reading.kwh, reading.rate, reading.total, reading.timestamp,
+                    reading.memo);
+            idAllocator.markUsed(id);
+            return writtenBill(id);
+        });
+    }
+
+    // PUT /api/bills/{id}
+    private String update(HttpExchange exchange, int id) throws IOException, SQLException, InterruptedException {
+        Reading reading = reading(readBody(exchange));
+        int newId = reading.id == 0 ? id : reading.id;
+
+        return write("update bill", () -> {
+            String json = writerRepository.inTransaction(() -> {
+                if (!writerRepository.idExists(id)) {
+                    throw new HttpError(404, "no bill with ID " + id);
+                }
+                if (newId != id && writerRepository.idExists(newId)) {
+                    throw new HttpError(409, "ID " + newId + " already exists");
+                }
+                writerRepository.update(id, newId, reading.kwh, reading.rate, reading.total, reading.timestamp,
+                        reading.memo);
+                return writtenBill(newId);
+            });
+            if (newId != id) {
+                idAllocator.markFree(id);
+                idAllocator.markUsed(newId);
+            }
+            return json;
+        });
+    }
+
+    // GET /api/estimate
+    private String estimate(HttpExchange exchange) throws SQLException, InterruptedException, IOException {
+        int accountId = account(query(exchange));
+        List<MonthlySummary> months = read("estimate", reader -> MonthlySummary.loadAll(reader.getConnection(), accountId));
+        BillEstimate estimate = BillEstimate.of(months, rateSchedule, pricer.getTariff());
+        if (estimate == null) {
+            throw new HttpError(404, "account " + accountId + " has no readings to estimate from");
+        }
+
+        StringWriter json = new StringWriter();
+        json.write(String.format("{\"month\":\"%04d-%02d\",\"kwh\":%s,\"method\":", estimate.year, estimate.month,
+                estimate.forecast.kwh));
+        BillExporter.writeJsonString(json, estimate.forecast.method);
+        json.write(",\"rate\":" + estimate.rate + ",\"rateSource\":");
+        BillExporter.writeJsonString(json, estimate.rateSource);
+        json.write(",\"bill\":" + estimate.bill + ",\"latestMonth\":");
+        BillExporter.writeJsonString(json, estimate.latest.month);
+        json.write(",\"latestKwh\":" + estimate.latest.kwhSum + '}');
+        return json.toString();
+    }
+
+    // The bill sent to create or update. A bare date gets the time of day, as
+    // Save Record does.
+    private Reading reading(Map<String, Object> body) {
+        return Reading.of(optionalId(body), optionalString(body, "date"), number(body, "kwh"),
+                optionalNumber(body, "rate"), optionalString(body, "memo"),
+                LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss")), pricer);
+    }
+
+    // Writer thread: the bill just written, as JSON
+    private String writtenBill(int id) throws SQLException {
+        try (ResultSet rs = writerRepository.queryById(id)) {
+            rs.next();
+            return billJson(rs);
+        }
+    }
+
+    private void requireAccount(int accountId) throws SQLException {
+        PreparedStatement pstmt = writerRepository.prepare("SELECT 1 FROM accounts WHERE id = ?");
+        pstmt.setInt(1, accountId);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next()) {
+                throw new HttpError(404, "no account with ID " + accountId);
+            }
+        }
+    }
+
+    private static String billJson(ResultSet rs) throws SQLException {
+        StringWriter json = new StringWriter();
+        try {
+            BillExporter.writeJsonRow(json, rs);
+        } catch (IOException e) {
+            throw new SQLException(e);
+        }
+        return json.toString();
+    }
+
+    // Runs a read on an idle reader, waiting for one if all are busy
+    private <T> T read(String name, DatabaseExecutor.ReadTask<T> task) throws SQLException, InterruptedException {
+        BillRepository reader = readers.take();
+        OperationMetrics.Timer timer = metrics.start(OperationMetrics.DATABASE, "api " + name);
+        T result = null;
+        boolean failed = true;
+        try {
+            result = task.call(reader);
+            failed = false;
+            return result;
+        } finally {
+            timer.stop(OperationMetrics.rowsOf(result), failed);
+            readers.add(reader);
+        }
+    }
+
+    // Runs a write on the writer thread after the writes queued before it
+    private <T> T write(String name, DatabaseExecutor.DbTask<T> task) throws SQLException, InterruptedException {
+        Future<T> future = writer.submit(() -> {
+            OperationMetrics.Timer timer = metrics.start(OperationMetrics.DATABASE, "api " + name);
+            boolean failed = true;
+            try {
+                T result = task.call();
+                failed = false;
+                return result;
+            } finally {
+                timer.stop(1, failed);
+            }
+        });
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException(cause);
+        }
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+                if (bytes.size() > MAX_BODY_BYTES) {
+                    throw new HttpError(413, "request body is over " + MAX_BODY_BYTES + " bytes");
+                }
+            }
+        }
+        return JsonReader.parseObject(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        try {
+            for (String pair : query.split("&")) {
+                int equals = pair.indexOf('=');
+                String name = equals < 0 ? pair : pair.substring(0, equals);
+                String value = equals < 0 ? "" : pair.substring(equals + 1);
+                parameters.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        return parameters;
+    }
+
+    private int account(Map<String, String> query) {
+        return intParameter(query, "account", defaultAccount);
+    }
+
+    private static int intParameter(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a whole number");
+        }
+    }
+
+    // Search type for MeralcoBill.createSearchFilter
+    private static String searchType(String by) {
+        switch (by) {
+            case "id":
+                return "ID";
+            case "date":
+                return "Date";
+            case "rate":
+                return "Rate";
+            case "memo":
+                return "Memo";
+            default:
+                throw new IllegalArgumentException("by must be id, date, rate or memo");
+        }
+    }
+
+    private static BillOrder order(String order) {
+        if (order == null || order.equals("newest")) {
+            return BillOrder.NEWEST_FIRST;
+        }
+        switch (order) {
+            case "oldest":
+                return BillOrder.OLDEST_FIRST;
+            case "id":
+                return BillOrder.ID_ASCENDING;
+            case "id-desc":
+                return BillOrder.ID_DESCENDING;
+            default:
+                throw new IllegalArgumentException("order must be newest, oldest, id or id-desc");
+        }
+    }
+
+    private static double number(Map<String, Object> body, String name) {
+        Double value = optionalNumber(body, name);
+        if (value == null) {
+            throw new IllegalArgumentException(name + " is required");
+        }
+        return value;
+    }
+
+    private static Double optionalNumber(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (value == null) {
+            return null;
+        }
+        if (!(value instanceof Double) || ((Double) value).isInfinite()) {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+        return (Double) value;
+    }
+
+    private static String optionalString(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (value != null && !(value instanceof String)) {
+            throw new IllegalArgumentException(name + " must be a string");
+        }
+        return value == null ? null : ((String) value).trim();
+    }
+
+    // The "id" member, or 0 if there is none
+    private static int optionalId(Map<String, Object> body) {
+        Double id = optionalNumber(body, "id");
+        if (id == null) {
+            return 0;
+        }
+        if (id <= 0 || id > Integer.MAX_VALUE || id != Math.floor(id)) {
+            throw new IllegalArgumentException("id must be a positive whole number");
+        }
+        return id.intValue();
+    }
+
+    private static String error(String message) {
+        StringWriter json = new StringWriter();
+        json.write("{\"error\":");
+        try {
+            BillExporter.writeJsonString(json, message);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        json.write('}');
+        return json.toString();
+    }
+}
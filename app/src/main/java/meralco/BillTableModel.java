@@ -0,0 +1,711 @@
+package meralco;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.AbstractTableModel;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+// Table model that fetches bill rows from SQLite one page at a time, only when
+// the table asks for a row (i.e. when the viewport scrolls to it). Pages are
+// read on the reader connections; rows show as blank until their page arrives.
+// Single-row writes are patched in place through RowChange instead of reloading.
+// Reads run beside writes, so a read that overlapped a write may or may not
+// include it; such pages are reloaded when next shown and such query results
+// are queried again rather than patched.
+// Results of up to RESIDENT_ROWS rows are read whole instead, so the table can
+// sort them in memory (see BillRowSorter). Cells hold the typed values; the
+// table's renderers format them. Notifying the table of changes is timed in the
+// UPDATE phase of the metrics.
+class BillTableModel extends AbstractTableModel {
+    static final int PAGE_SIZE = 200;
+    static final int MAX_CACHED_PAGES = 16;
+    static final int RESIDENT_ROWS = 50_000;
+
+    private static final String[] COLUMN_NAMES = {"ID", "Date & Time", "kWh Used", "Rate (₱)", "Total (₱)", "Memo"};
+    private static final Class<?>[] COLUMN_CLASSES = {Integer.class, String.class, Double.class, Double.class, Double.class, String.class};
+
+    private final DatabaseExecutor dbExecutor;
+    private final OperationMetrics metrics;
+    // Writer's repository, for RowChange; set and used on the database thread
+    private volatile BillRepository repository;
+
+    // Current query
+    private BillFilter filter = BillFilter.ALL;
+    private BillOrder order = BillOrder.NEWEST_FIRST;
+    private int rowCount = 0;
+    private int queryGeneration = 0;
+    private final Set<Integer> loadingPages = new HashSet<>();
+
+    // Every row of the current query when it is small enough, else null
+    private Page resident;
+
+    // Changes created but not yet applied; while any are out, cached pages may
+    // not match the database, so new changes do not use them as anchors
+    private int pendingChanges = 0;
+    // Writes applied so far, to tell whether one landed during a read
+    private int appliedChanges = 0;
+
+    // Most recently used pages, keyed by page index
+    private final Map<Integer, Page> pages = new LinkedHashMap<Integer, Page>(MAX_CACHED_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+
+    BillTableModel(DatabaseExecutor dbExecutor, OperationMetrics metrics) {
+        this.dbExecutor = dbExecutor;
+        this.metrics = metrics;
+    }
+
+    void setRepository(BillRepository repository) {
+        this.repository = repository;
+    }
+
+    // Replaces the current query. onCounted receives the new row count once the
+    // table has switched over; a query replaced before it finishes reports nothing
+    // and, if already running, is interrupted. A large result arrives with its
+    // first page, so the top of the table fills in without another round trip.
+    void setQuery(BillFilter filter, BillOrder order, IntConsumer onCounted, Consumer<SQLException> onError) {
+        setQuery(filter, order, RESIDENT_ROWS, onCounted, onError);
+    }
+
+    // Like setQuery, but reads only the first page unless that is every row,
+    // leaving the result paged even if it is small enough to be resident. For
+    // startup and search-as-you-type, where the first screenful matters more
+    // than sorting.
+    void setFirstPageQuery(BillFilter filter, BillOrder order, IntConsumer onCounted, Consumer<SQLException> onError) {
+        setQuery(filter, order, PAGE_SIZE, onCounted, onError);
+    }
+
+    private void setQuery(BillFilter filter, BillOrder order, int residentRows,
+                          IntConsumer onCounted, Consumer<SQLException> onError) {
+        int changesBefore = appliedChanges;
+        dbExecutor.query("records", reader -> {
+            int count = reader.count(filter);
+            if (count <= residentRows) {
+                return loadRows(reader, filter, order, count, 0);
+            }
+            Page first = loadPage(reader, filter, order, 0);
+            first.count = count;
+            return first;
+        }, result -> {
+            this.filter = filter;
+            this.order = order;
+            queryGeneration++;
+            pages.clear();
+            loadingPages.clear();
+            if (result.size == result.count) {
+                resident = result;
+                rowCount = result.size;
+            } else {
+                resident = null;
+                rowCount = result.count;
+                pages.put(0, result);
+            }
+            fireTableDataChanged();
+            onCounted.accept(rowCount);
+            if (appliedChanges != changesBefore) {
+                // A write finished during the read, which may have missed it
+                refresh(count -> { }, onError);
+            }
+        }, onError);
+    }
+
+    // Whether every row is loaded, so the table can sort them itself.
+    boolean isResident() {
+        return resident != null;
+    }
+
+    // Re-runs the current query, e.g. after a bulk change.
+    void refresh(IntConsumer onCounted, Consumer<SQLException> onError) {
+        setQuery(filter, order, onCounted, onError);
+    }
+
+    // Starts tracking a single-row write. Call before() and after() on the
+    // database thread around the write, then applyChange() with the result on
+    // the event dispatch thread, whether the write succeeded or not.
+    RowChange trackChange() {
+        return new RowChange(pendingChanges++ == 0);
+    }
+
+    // Moves, inserts, removes or updates the changed row in place.
+    void applyChange(RowChange change) {
+        pendingChanges--;
+        if (!change.written) {
+            return;
+        }
+        appliedChanges++;
+        if (change.generation != queryGeneration) {
+            // The query was replaced while the write ran; the new result may
+            // or may not include it
+            refresh(count -> { }, e -> System.err.println("Error reloading records: " + e.getMessage()));
+            return;
+        }
+        if (!change.placed) {
+            // The row's position is unknown (a relevance-ranked search, or a
+            // write that failed half way): count and load the query again
+            refresh(count -> { }, e -> System.err.println("Error reloading records: " + e.getMessage()));
+            return;
+        }
+
+        int oldPosition = change.oldPosition;
+        int newPosition = change.newPosition;
+        if (change.inMemory) {
+            oldPosition = change.oldKey == null ? -1 : resident.search(order, change.oldKey);
+            if (oldPosition >= 0 && (oldPosition == resident.size
+                    || order.compare(resident.key(oldPosition), change.oldKey) != 0)) {
+                // The old row is not where it should be; load the query again
+                refresh(count -> { }, e -> System.err.println("Error reloading records: " + e.getMessage()));
+                return;
+            }
+            newPosition = change.newKey == null ? -1 : resident.search(order, change.newKey);
+            if (newPosition > oldPosition && oldPosition >= 0) {
+                // Counted with the old row still in place
+                newPosition--;
+            }
+        }
+        if (oldPosition >= 0 && oldPosition == newPosition) {
+            Page page = pageAt(oldPosition);
+            int i = slot(oldPosition);
+            if (page != null && i < page.size) {
+                page.set(i, change.row, 0);
+            }
+            fireTableRowsUpdated(oldPosition, oldPosition);
+            return;
+        }
+        if (oldPosition >= 0) {
+            removeRow(oldPosition);
+            fireTableRowsDeleted(oldPosition, oldPosition);
+        }
+        if (newPosition >= 0) {
+            insertRow(newPosition, change.row);
+            fireTableRowsInserted(newPosition, newPosition);
+        }
+    }
+
+    // Later rows move up one; pages after this one are reloaded when next shown.
+    private void removeRow(int position) {
+        rowCount--;
+        if (resident != null) {
+            resident.remove(position);
+            return;
+        }
+        int pageIndex = position / PAGE_SIZE;
+        Page page = pages.get(pageIndex);
+        int i = position % PAGE_SIZE;
+        if (page != null) {
+            if (i < page.size) {
+                boolean full = page.size == PAGE_SIZE;
+                page.remove(i);
+                // Its last row comes from the next page
+                page.stale |= full;
+            } else {
+                page.stale = true;
+            }
+        }
+        markStaleAfter(pageIndex);
+    }
+
+    // Later rows move down one; pages after this one are reloaded when next shown.
+    private void insertRow(int position, Page row) {
+        rowCount++;
+        if (resident != null) {
+            resident.ensureCapacity(resident.size + 1);
+            resident.insert(position, row);
+            return;
+        }
+        int pageIndex = position / PAGE_SIZE;
+        Page page = pages.get(pageIndex);
+        int i = position % PAGE_SIZE;
+        if (page != null) {
+            if (i <= page.size) {
+                page.insert(i, row);
+            } else {
+                page.stale = true;
+            }
+        }
+        markStaleAfter(pageIndex);
+    }
+
+    private void markStaleAfter(int pageIndex) {
+        for (Map.Entry<Integer, Page> entry : pages.entrySet()) {
+            if (entry.getKey() > pageIndex) {
+                entry.getValue().stale = true;
+            }
+        }
+    }
+
+    BillFilter getFilter() {
+        return filter;
+    }
+
+    // Typed accessors for a model row. They read only rows already loaded and
+    // return -1, null or 0 for a row whose page has not arrived yet.
+
+    // Id of the record at a row, or -1 if its page has not been loaded yet.
+    int getRecordId(int row) {
+        Page page = pageAt(row);
+        int i = slot(row);
+        return (page != null && i < page.size) ? page.ids[i] : -1;
+    }
+
+    String getTimestamp(int row) {
+        Page page = pageAt(row);
+        int i = slot(row);
+        return (page != null && i < page.size) ? page.timestamps[i] : null;
+    }
+
+    double getKwh(int row) {
+        Page page = pageAt(row);
+        int i = slot(row);
+        return (page != null && i < page.size) ? page.kwh[i] : 0;
+    }
+
+    double getRate(int row) {
+        Page page = pageAt(row);
+        int i = slot(row);
+        return (page != null && i < page.size) ? page.rates[i] : 0;
+    }
+
+    double getTotal(int row) {
+        Page page = pageAt(row);
+        int i = slot(row);
+        return (page != null && i < page.size) ? page.totals[i] : 0;
+    }
+
+    // Full memo of the record at a row (the memo column may show a snippet).
+    String getMemo(int row) {
+        Page page = pageAt(row);
+        int i = slot(row);
+        return (page != null && i < page.size) ? page.memos[i] : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return COLUMN_CLASSES[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Page page = pageFor(row);
+        int i = slot(row);
+        if (page == null || i >= page.size) {
+            return null;
+        }
+        switch (column) {
+            case 0:
+                return page.ids[i];
+            case 1:
+                return page.timestamps[i];
+            case 2:
+                return page.kwh[i];
+            case 3:
+                return page.rates[i];
+            case 4:
+                return page.totals[i];
+            case 5:
+                return page.snippets[i] != null ? page.snippets[i] : page.memos[i];
+            default:
+                return null;
+        }
+    }
+
+    // Returns the cached page holding a row, or null after requesting it. A
+    // stale page is still returned while its replacement loads.
+    private Page pageFor(int row) {
+        if (resident != null) {
+            return resident;
+        }
+        int pageIndex = row / PAGE_SIZE;
+        Page page = pages.get(pageIndex);
+        if ((page == null || page.stale) && loadingPages.add(pageIndex)) {
+            requestPage(pageIndex);
+        }
+        return page;
+    }
+
+    private void requestPage(int pageIndex) {
+        int generation = queryGeneration;
+        BillFilter pageFilter = filter;
+        BillOrder pageOrder = order;
+        boolean writing = pendingChanges > 0;
+        int changesBefore = appliedChanges;
+
+        dbExecutor.read("records page", reader -> loadPage(reader, pageFilter, pageOrder, pageIndex), page -> {
+            if (generation != queryGeneration) {
+                return;
+            }
+            loadingPages.remove(pageIndex);
+            // A write overlapped the read, so the rows may be off by one from
+            // the changes patched in
+            page.stale = writing || pendingChanges > 0 || appliedChanges != changesBefore;
+            pages.put(pageIndex, page);
+            int firstRow = pageIndex * PAGE_SIZE;
+            int lastRow = Math.min(firstRow + PAGE_SIZE, rowCount) - 1;
+            if (lastRow >= firstRow) {
+                fireTableRowsUpdated(firstRow, lastRow);
+            }
+        }, e -> {
+            // The page is not cached, so it is requested again when next shown
+            if (generation == queryGeneration) {
+                loadingPages.remove(pageIndex);
+            }
+            System.err.println("Error loading records page " + pageIndex + ": " + e.getMessage());
+        });
+    }
+
+    // Times the table's (and its sorter's) handling of every change
+    @Override
+    public void fireTableChanged(TableModelEvent e) {
+        boolean allRows = e.getLastRow() == Integer.MAX_VALUE;
+        String name;
+        if (allRows || e.getFirstRow() == TableModelEvent.HEADER_ROW) {
+            name = "records reloaded";
+        } else if (e.getType() == TableModelEvent.INSERT) {
+            name = "rows inserted";
+        } else if (e.getType() == TableModelEvent.DELETE) {
+            name = "rows deleted";
+        } else {
+            name = "rows updated";
+        }
+        OperationMetrics.Timer timer = metrics.start(OperationMetrics.UPDATE, name);
+        try {
+            super.fireTableChanged(e);
+        } finally {
+            timer.stop(allRows || e.getFirstRow() < 0 ? rowCount : e.getLastRow() - e.getFirstRow() + 1, false);
+        }
+    }
+
+    // Cached page holding a row without requesting it; null if not loaded.
+    private Page pageAt(int row) {
+        return resident != null ? resident : pages.get(row / PAGE_SIZE);
+    }
+
+    // Index of a row within the page returned by pageAt or pageFor
+    private int slot(int row) {
+        return resident != null ? row : row % PAGE_SIZE;
+    }
+
+    private static Page loadPage(BillRepository reader, BillFilter pageFilter, BillOrder pageOrder, int pageIndex)
+            throws SQLException {
+        return loadRows(reader, pageFilter, pageOrder, PAGE_SIZE, pageIndex * PAGE_SIZE);
+    }
+
+    private static Page loadRows(BillRepository reader, BillFilter rowFilter, BillOrder rowOrder, int limit, int offset)
+            throws SQLException {
+        boolean hasSnippets = rowFilter.getMemoSnippet() != null;
+        Page page = new Page(limit);
+        try (ResultSet rs = reader.queryPage(rowFilter, rowOrder, limit, offset)) {
+            while (rs.next()) {
+                page.read(rs, hasSnippets);
+            }
+        }
+        page.count = page.size;
+        return page;
+    }
+
+    // Turns an FTS snippet with highlight marks into HTML for the table cell.
+    private static String highlight(String snippet) {
+        if (snippet == null) {
+            return null;
+        }
+        StringBuilder html = new StringBuilder(snippet.length() + 32).append("<html>");
+        for (int i = 0; i < snippet.length(); i++) {
+            char c = snippet.charAt(i);
+            switch (c) {
+                case BillFilter.HIGHLIGHT_START:
+                    html.append("<b>");
+                    break;
+                case BillFilter.HIGHLIGHT_END:
+                    html.append("</b>");
+                    break;
+                case '<':
+                    html.append("&lt;");
+                    break;
+                case '>':
+                    html.append("&gt;");
+                    break;
+                case '&':
+                    html.append("&amp;");
+                    break;
+                default:
+                    html.append(c);
+            }
+        }
+        return html.append("</html>").toString();
+    }
+
+    // One page of rows, stored column-wise
+    private static final class Page implements OperationMetrics.RowCounted {
+        int[] ids;
+        String[] timestamps;
+        double[] kwh;
+        double[] rates;
+        double[] totals;
+        String[] memos;
+        String[] snippets;
+        int size;
+        // Rows in the whole query, when this is the result of setQuery
+        int count;
+        // Rows no longer line up with the query after a change; reload when shown
+        boolean stale;
+
+        Page(int capacity) {
+            ids = new int[capacity];
+            timestamps = new String[capacity];
+            kwh = new double[capacity];
+            rates = new double[capacity];
+            totals = new double[capacity];
+            memos = new String[capacity];
+            snippets = new String[capacity];
+        }
+
+        @Override
+        public long rowCount() {
+            return size;
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity > ids.length) {
+                int grown = Math.max(capacity, ids.length + (ids.length >> 1));
+                ids = Arrays.copyOf(ids, grown);
+                timestamps = Arrays.copyOf(timestamps, grown);
+                kwh = Arrays.copyOf(kwh, grown);
+                rates = Arrays.copyOf(rates, grown);
+                totals = Arrays.copyOf(totals, grown);
+                memos = Arrays.copyOf(memos, grown);
+                snippets = Arrays.copyOf(snippets, grown);
+            }
+        }
+
+        // Appends the current row of a queryPage or queryById result.
+        void read(ResultSet rs, boolean hasSnippets) throws SQLException {
+            int i = size++;
+            ids[i] = rs.getInt(1);
+            timestamps[i] = rs.getString(2);
+            kwh[i] = rs.getDouble(3);
+            rates[i] = rs.getDouble(4);
+            totals[i] = rs.getDouble(5);
+            memos[i] = rs.getString(6);
+            if (hasSnippets) {
+                snippets[i] = highlight(rs.getString(7));
+            }
+        }
+
+        BillOrder.Key key(int i) {
+            return new BillOrder.Key(timestamps[i], ids[i]);
+        }
+
+        // Index of the first row that sorts at or after the key, for rows in
+        // that order; size if there is none.
+        int search(BillOrder order, BillOrder.Key key) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (order.compare(key(middle), key) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        void set(int i, Page from, int j) {
+            ids[i] = from.ids[j];
+            timestamps[i] = from.timestamps[j];
+            kwh[i] = from.kwh[j];
+            rates[i] = from.rates[j];
+            totals[i] = from.totals[j];
+            memos[i] = from.memos[j];
+            snippets[i] = from.snippets[j];
+        }
+
+        // Inserts a row at i, dropping the last row when the page is full.
+        void insert(int i, Page from) {
+            int moved = Math.min(size, ids.length - 1) - i;
+            shift(i, i + 1, moved);
+            set(i, from, 0);
+            size = Math.min(size + 1, ids.length);
+        }
+
+        void remove(int i) {
+            shift(i + 1, i, size - i - 1);
+            size--;
+        }
+
+        private void shift(int from, int to, int length) {
+            if (length <= 0) {
+                return;
+            }
+            System.arraycopy(ids, from, ids, to, length);
+            System.arraycopy(timestamps, from, timestamps, to, length);
+            System.arraycopy(kwh, from, kwh, to, length);
+            System.arraycopy(rates, from, rates, to, length);
+            System.arraycopy(totals, from, totals, to, length);
+            System.arraycopy(memos, from, memos, to, length);
+            System.arraycopy(snippets, from, snippets, to, length);
+        }
+    }
+
+    // A write to one bill, located in the current query before and after the
+    // write. A resident result is binary searched in memory when the change is
+    // applied. Otherwise the position is a key range count on the order's
+    // index from the nearest known position: the first and last rows of cached
+    // pages, and the start and end of the query. Rows are counted from the
+    // known position before the bill up to half way to the one after it, and
+    // past that back from the one after it, so a count covers at most about
+    // half the gap between two known positions.
+    final class RowChange {
+        private final int generation = queryGeneration;
+        private final BillFilter changeFilter = filter;
+        private final BillOrder changeOrder = order;
+        private final boolean placeable = filter.getRankOrder() == null;
+        private final boolean inMemory = resident != null;
+        private final List<Anchor> anchors = new ArrayList<>();
+        // Rows in the query, or -1 to count from the start only
+        private int end = -1;
+
+        private BillOrder.Key oldKey;
+        private BillOrder.Key newKey;
+        private int oldPosition = -1;
+        private int newPosition = -1;
+        private Page row;
+        private boolean written;
+        private boolean placed;
+
+        private RowChange(boolean useAnchors) {
+            // Pages read before an earlier change was applied may be off by one
+            if (useAnchors && !inMemory) {
+                end = rowCount;
+                for (Map.Entry<Integer, Page> entry : pages.entrySet()) {
+                    Page page = entry.getValue();
+                    if (!page.stale && page.size > 0) {
+                        int first = entry.getKey() * PAGE_SIZE;
+                        anchors.add(new Anchor(first, page.key(0)));
+                        anchors.add(new Anchor(first + page.size - 1, page.key(page.size - 1)));
+                    }
+                }
+            }
+        }
+
+        // Locates the bill before it is written. Database thread only.
+        void before(int id) throws SQLException {
+            written = true;
+            if (placeable) {
+                oldKey = find(id);
+                if (oldKey != null && !inMemory) {
+                    oldPosition = locate(oldKey, false);
+                }
+            }
+        }
+
+        // Locates the bill after it is written; a deleted bill is not found.
+        // Database thread only.
+        void after(int id) throws SQLException {
+            written = true;
+            if (placeable) {
+                newKey = find(id);
+                if (newKey != null && !inMemory) {
+                    newPosition = locate(newKey, true);
+                }
+                placed = true;
+            }
+        }
+
+        // Sort key of the bill, keeping its row, or null if it is missing or
+        // filtered out.
+        private BillOrder.Key find(int id) throws SQLException {
+            Page found = new Page(1);
+            try (ResultSet rs = repository.queryById(id)) {
+                if (!rs.next()) {
+                    return null;
+                }
+                found.read(rs, false);
+            }
+            if (!repository.matches(changeFilter, id)) {
+                return null;
+            }
+            row = found;
+            return found.key(0);
+        }
+
+        // Position of the key in the query, counted from the known positions
+        // on either side of it. After the write, the old row (if it was in
+        // the query) is gone and the new one is in.
+        private int locate(BillOrder.Key key, boolean afterWrite) throws SQLException {
+            int removed = afterWrite && oldPosition >= 0 ? 1 : 0;
+            BillOrder.Key fromKey = null;
+            int fromPosition = 0;
+            BillOrder.Key toKey = null;
+            int toPosition = end < 0 ? -1 : end - removed + (afterWrite ? 1 : 0);
+            for (Anchor anchor : anchors) {
+                int position = anchor.position - (removed == 1 && oldPosition < anchor.position ? 1 : 0);
+                if (changeOrder.compare(anchor.key, key) <= 0) {
+                    if (position >= fromPosition) {
+                        fromKey = anchor.key;
+                        fromPosition = position;
+                    }
+                } else {
+                    // The new row sorts before this anchor too
+                    position += afterWrite ? 1 : 0;
+                    if (toPosition < 0 || position < toPosition) {
+                        toKey = anchor.key;
+                        toPosition = position;
+                    }
+                }
+            }
+
+            if (toPosition < 0) {
+                return fromPosition + repository.countBetween(changeFilter, changeOrder, fromKey, key, -1);
+            }
+            int half = Math.max(1, (toPosition - fromPosition) / 2);
+            int counted = repository.countBetween(changeFilter, changeOrder, fromKey, key, half);
+            if (counted < half) {
+                return fromPosition + counted;
+            }
+            return toPosition - repository.countBetween(changeFilter, changeOrder, key, toKey, -1);
+        }
+    }
+
+    // Position and sort key of a cached row
+    private static final class Anchor {
+        final int position;
+        final BillOrder.Key key;
+
+        Anchor(int position, BillOrder.Key key) {
+            this.position = position;
+            this.key = key;
+        }
+    }
+}
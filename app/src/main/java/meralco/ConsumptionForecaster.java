@@ -0,0 +1,130 @@
+package meralco;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Projects a month's usage from monthly usage history: a least-squares trend
+// line over the observed months, plus that calendar month's average distance
+// from the trend once there is a full year of history.
+//
+// The per-reading running sums are the monthly_summary rollup, which triggers
+// update in O(1) as each reading is saved, edited or deleted. A forecaster is
+// built from an account's rollup rows when it is needed (see of), one pass
+// over its months and never over its readings, rather than kept alive and
+// updated: then no in-memory copy can drift from the table, and a forecast
+// always reflects every write, including ones from the API or a batch. Once
+// built, a forecast is O(1), so forecasting thousands of meters costs one
+// rollup read each.
+class ConsumptionForecaster {
+    // Months of history needed before the seasonal adjustment is applied
+    static final int SEASONAL_MONTHS = 12;
+
+    // Month indexes count from January 2000, keeping the sums small
+    private static final int ORIGIN_YEAR = 2000;
+
+    // Month indexes of the observed months
+    private final Set<Integer> months = new HashSet<>();
+
+    // Regression sums over observed months: x is the month index, y its kWh
+    private long n;
+    private double sumX;
+    private double sumY;
+    private double sumXY;
+    private double sumXX;
+
+    // Observed months, their month indexes and their kWh, per calendar month
+    // (0 = January)
+    private final int[] seasonMonths = new int[12];
+    private final double[] seasonX = new double[12];
+    private final double[] seasonKwh = new double[12];
+
+    private int latestMonth = Integer.MIN_VALUE;
+
+    // History from a monthly rollup (see MonthlySummary)
+    static ConsumptionForecaster of(List<MonthlySummary> summaries) {
+        ConsumptionForecaster forecaster = new ConsumptionForecaster();
+        for (MonthlySummary summary : summaries) {
+            forecaster.add(monthIndex(Integer.parseInt(summary.month.substring(0, 4)),
+                    Integer.parseInt(summary.month.substring(5, 7))), summary.kwhSum);
+        }
+        return forecaster;
+    }
+
+    // Adds kWh used in the month at index x
+    private void add(int x, double kwh) {
+        if (months.add(x)) {
+            n++;
+            sumX += x;
+            sumXX += (double) x * x;
+            seasonMonths[Math.floorMod(x, 12)]++;
+            seasonX[Math.floorMod(x, 12)] += x;
+            latestMonth = Math.max(latestMonth, x);
+        }
+        sumY += kwh;
+        sumXY += x * kwh;
+        seasonKwh[Math.floorMod(x, 12)] += kwh;
+    }
+
+    int getMonthCount() {
+        return (int) n;
+    }
+
+    // Month index of the month after the latest observed one; check
+    // getMonthCount first, as it is meaningless without history.
+    int nextMonthIndex() {
+        return latestMonth + 1;
+    }
+
+    // Projected kWh for a month (1 = January), or null without history.
+    Forecast forecast(int year, int month) {
+        if (n == 0) {
+            return null;
+        }
+        int x = monthIndex(year, month);
+        double slope = 0;
+        double intercept = sumY / n;
+        String method = "average of " + n + " month(s)";
+
+        double denominator = n * sumXX - sumX * sumX;
+        if (n >= 2 && denominator != 0) {
+            slope = (n * sumXY - sumX * sumY) / denominator;
+            intercept = (sumY - slope * sumX) / n;
+            method = "linear trend over " + n + " months";
+        }
+        double kwh = intercept + slope * x;
+
+        int season = Math.floorMod(x, 12);
+        int seasonCount = seasonMonths[season];
+        if (n >= SEASONAL_MONTHS && seasonCount > 0) {
+            // Mean residual of this calendar month against the trend line
+            double adjustment = (seasonKwh[season] - intercept * seasonCount - slope * seasonX[season]) / seasonCount;
+            kwh += adjustment;
+            method += String.format(", seasonal adjustment %+.2f kWh", adjustment);
+        }
+        return new Forecast(Math.max(kwh, 0), method);
+    }
+
+    static int monthIndex(int year, int month) {
+        return (year - ORIGIN_YEAR) * 12 + (month - 1);
+    }
+
+    static int yearOf(int monthIndex) {
+        return ORIGIN_YEAR + Math.floorDiv(monthIndex, 12);
+    }
+
+    // 1 = January
+    static int monthOf(int monthIndex) {
+        return Math.floorMod(monthIndex, 12) + 1;
+    }
+
+    static final class Forecast {
+        final double kwh;
+        final String method;
+
+        Forecast(double kwh, String method) {
+            this.kwh = kwh;
+            this.method = method;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package meralco;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// One account's usage per month with year-over-year change, read from the
+// monthly_summary rollup so it costs one row per month rather than a scan of every bill.
+class DashboardDialog extends JDialog {
+    private final DatabaseExecutor dbExecutor;
+    private final int accountId;
+
+    private final DefaultTableModel tableModel;
+    private final JLabel overviewLabel = new JLabel(" ");
+
+    DashboardDialog(Frame owner, DatabaseExecutor dbExecutor, Account account) {
+        super(owner, "Usage Dashboard - " + account.name, true);
+        this.dbExecutor = dbExecutor;
+        this.accountId = account.id;
+
+        tableModel = new DefaultTableModel(new String[]{"Month", "Readings", "kWh Used", "Total (₱)",
+                "Avg Rate (₱)", "Min kWh", "Max kWh", "Last Reading", "kWh vs Last Year"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable table = new JTable(tableModel);
+        table.getTableHeader().setReorderingAllowed(false);
+
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.addActionListener(e -> refresh());
+        JPanel topPanel = new JPanel(new BorderLayout(5, 5));
+        topPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 0, 5));
+        topPanel.add(overviewLabel, BorderLayout.CENTER);
+        topPanel.add(refreshButton, BorderLayout.EAST);
+
+        setLayout(new BorderLayout(5, 5));
+        add(topPanel, BorderLayout.NORTH);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        setSize(900, 420);
+        setLocationRelativeTo(owner);
+        refresh();
+    }
+
+    private void refresh() {
+        dbExecutor.query("dashboard", reader -> MonthlySummary.loadAll(reader.getConnection(), accountId), this::showMonths,
+                e -> JOptionPane.showMessageDialog(this, "Error loading usage summary: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    private void showMonths(List<MonthlySummary> months) {
+        Map<String, Double> kwhByMonth = new HashMap<>();
+        long readings = 0;
+        double kwh = 0;
+        double total = 0;
+        for (MonthlySummary summary : months) {
+            kwhByMonth.put(summary.month, summary.kwhSum);
+            readings += summary.readings;
+            kwh += summary.kwhSum;
+            total += summary.totalSum;
+        }
+
+        tableModel.setRowCount(0);
+        // Newest month first
+        for (int i = months.size() - 1; i >= 0; i--) {
+            MonthlySummary summary = months.get(i);
+            tableModel.addRow(new Object[]{
+                    summary.month,
+                    summary.readings,
+                    String.format("%.2f", summary.kwhSum),
+                    String.format("%.2f", summary.totalSum),
+                    String.format("%.4f", summary.averageRate()),
+                    String.format("%.2f", summary.kwhMin),
+                    String.format("%.2f", summary.kwhMax),
+                    String.format("%s (%.2f kWh)", summary.lastTimestamp, summary.lastKwh),
+                    yearOverYear(summary, kwhByMonth.get(previousYear(summary.month)))
+            });
+        }
+
+        if (months.isEmpty()) {
+            overviewLabel.setText("No readings yet.");
+        } else {
+            overviewLabel.setText(String.format("%d readings over %d months | %.2f kWh | ₱%.2f total | %.2f kWh per month on average",
+                    readings, months.size(), kwh, total, kwh / months.size()));
+        }
+    }
+
+    // "YYYY-MM" of the same month a year earlier
+    private static String previousYear(String month) {
+        int year = Integer.parseInt(month.substring(0, 4));
+        return String.format("%04d%s", year - 1, month.substring(4));
+    }
+
+    private static String yearOverYear(MonthlySummary summary, Double lastYearKwh) {
+        if (lastYearKwh == null || lastYearKwh == 0) {
+            return "";
+        }
+        return String.format("%+.1f%%", (summary.kwhSum - lastYearKwh) / lastYearKwh * 100);
+    }
+}
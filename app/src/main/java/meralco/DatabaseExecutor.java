@@ -0,0 +1,302 @@
+package meralco;
+
+import javax.swing.*;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Runs all JDBC work off the event dispatch thread so it never waits on SQLite.
+// Writes run on one database thread in submission order, which keeps them
+// ordered; reads run on a small pool of read-only connections (see
+// startReaders), so a long read neither waits for nor holds up a write. In WAL
+// mode each read sees the database as of the last committed write. Results and
+// errors are handed back on the EDT. Methods other than the tasks themselves
+// must be called from the EDT. Each task is timed under its name in the
+// DATABASE phase of the metrics.
+class DatabaseExecutor {
+
+    interface DbTask<T> {
+        T call() throws SQLException;
+    }
+
+    // A read, given a repository over one of the read-only connections
+    interface ReadTask<T> {
+        T call(BillRepository reader) throws SQLException;
+    }
+
+    // Something a running query can be stopped through (see BillRepository)
+    interface Interruptible {
+        // Called from the EDT, only while the query is running; the query
+        // should then fail with an SQLException
+        void interrupt();
+
+        // Called on the database thread when the query ends
+        void clearInterrupt();
+    }
+
+    private final OperationMetrics metrics;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "database");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // One idle reader per reader thread, so a task always finds one
+    private ExecutorService readers;
+    private final ConcurrentLinkedQueue<BillRepository> idleReaders = new ConcurrentLinkedQueue<>();
+    private final List<BillRepository> allReaders = new ArrayList<>();
+    // Reads submitted before startReaders, run once it has been called
+    private final List<Runnable> deferredReads = new ArrayList<>();
+
+    // Latest query per key; older ones are superseded
+    private final Map<String, Submission> latestQueries = new HashMap<>();
+    private int pendingTasks = 0;
+
+    // Guards Submission.state, so a superseded query is only skipped before it
+    // starts and only interrupted while it runs
+    private final Object stateLock = new Object();
+
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+    private static final int SKIPPED = 3;
+
+    private static final class Submission {
+        // Reader the query runs on, once it runs
+        Interruptible interruptible;
+        int state = QUEUED;
+    }
+
+    private Consumer<Boolean> busyListener = busy -> { };
+
+    DatabaseExecutor(OperationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    void setBusyListener(Consumer<Boolean> busyListener) {
+        this.busyListener = busyListener;
+    }
+
+    // Opens count read-only connections to the database at url (already
+    // created by BillDatabase.open) for startReaders. Call it from a task, not
+    // the EDT; if one fails to open, those already open are closed.
+    static List<BillRepository> openReaders(String url, int count) throws SQLException {
+        List<BillRepository> opened = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                opened.add(new BillRepository(BillDatabase.openReadOnly(url)));
+            }
+        } catch (SQLException e) {
+            close(opened);
+            throw e;
+        }
+        return opened;
+    }
+
+    // Starts one reader thread per opened reader for read and query tasks.
+    // Call once; reads submitted earlier wait for it. Readers that arrive after
+    // shutdown are closed.
+    void startReaders(List<BillRepository> opened) {
+        if (executor.isShutdown()) {
+            close(opened);
+            return;
+        }
+        allReaders.addAll(opened);
+        idleReaders.addAll(opened);
+        AtomicInteger threads = new AtomicInteger();
+        readers = Executors.newFixedThreadPool(opened.size(), r -> {
+            Thread thread = new Thread(r, "database reader " + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Runnable read : deferredReads) {
+            readers.execute(read);
+        }
+        deferredReads.clear();
+    }
+
+    // Runs a task after every write submitted before it. Never cancelled, so use
+    // this for writes.
+    <T> void execute(String name, DbTask<T> task, Consumer<T> onSuccess, Consumer<SQLException> onError) {
+        submit(false, name, null, new Submission(), reader -> task.call(), onSuccess, onError);
+    }
+
+    // Runs a read on a reader connection, alongside writes and other reads. It
+    // sees every write whose result has been handed back, and may or may not
+    // see writes still in progress.
+    <T> void read(String name, ReadTask<T> task, Consumer<T> onSuccess, Consumer<SQLException> onError) {
+        submit(true, name, null, new Submission(), task, onSuccess, onError);
+    }
+
+    // Runs a read whose result is only wanted if no newer query with the same
+    // key has been submitted since. A superseded query that has not started yet
+    // is skipped; one already running is interrupted through its reader. The
+    // key also names the task in the metrics.
+    <T> void query(String key, ReadTask<T> task, Consumer<T> onSuccess, Consumer<SQLException> onError) {
+        Submission previous = latestQueries.remove(key);
+        if (previous != null) {
+            boolean skipped = false;
+            synchronized (stateLock) {
+                if (previous.state == QUEUED) {
+                    previous.state = SKIPPED;
+                    skipped = true;
+                } else if (previous.state == RUNNING && previous.interruptible != null) {
+                    previous.interruptible.interrupt();
+                }
+            }
+            if (skipped) {
+                taskFinished();
+            }
+        }
+        submit(true, key, key, new Submission(), task, onSuccess, onError);
+    }
+
+    // Runs the task on the database thread, which passes no reader, or on the
+    // reader threads, which take an idle reader for the task.
+    private <T> void submit(boolean onReader, String name, String key, Submission submission, ReadTask<T> task,
+                            Consumer<T> onSuccess, Consumer<SQLException> onError) {
+        taskStarted();
+        Runnable run = () -> {
+            BillRepository reader = onReader ? idleReaders.poll() : null;
+            synchronized (stateLock) {
+                if (submission.state == SKIPPED) {
+                    if (reader != null) {
+                        idleReaders.add(reader);
+                    }
+                    return;
+                }
+                submission.state = RUNNING;
+                submission.interruptible = reader;
+            }
+            T result = null;
+            SQLException error = null;
+            OperationMetrics.Timer timer = metrics.start(OperationMetrics.DATABASE, name);
+            try {
+                result = task.call(reader);
+            } catch (SQLException e) {
+                error = e;
+            } catch (RuntimeException e) {
+                error = new SQLException(e.toString(), e);
+            } catch (Error e) {
+                // Reported like any failure, then left to end the thread
+                error = new SQLException(e.toString(), e);
+                throw e;
+            } finally {
+                synchronized (stateLock) {
+                    submission.state = DONE;
+                }
+                // No interrupt can arrive once the query is done
+                if (reader != null) {
+                    reader.clearInterrupt();
+                    if (error != null) {
+                        // A statement that failed can be left unusable (one SQLite
+                        // could not re-prepare after a schema change, say), so the
+                        // reader's statements are prepared afresh for the retry
+                        reader.close();
+                    }
+                    idleReaders.add(reader);
+                }
+                // Handed back however the task ended, so the busy count drops
+                timer.stop(OperationMetrics.rowsOf(result), error != null);
+                T finalResult = result;
+                SQLException finalError = error;
+                SwingUtilities.invokeLater(() -> {
+                    taskFinished();
+                    if (key != null) {
+                        if (latestQueries.get(key) != submission) {
+                            return;
+                        }
+                        latestQueries.remove(key);
+                    }
+                    if (finalError != null) {
+                        onError.accept(finalError);
+                    } else {
+                        onSuccess.accept(finalResult);
+                    }
+                });
+            }
+        };
+        if (!onReader) {
+            executor.execute(run);
+        } else if (readers == null) {
+            deferredReads.add(run);
+        } else {
+            readers.execute(run);
+        }
+        if (key != null) {
+            latestQueries.put(key, submission);
+        }
+    }
+
+    private void taskStarted() {
+        if (pendingTasks++ == 0) {
+            busyListener.accept(true);
+        }
+    }
+
+    private void taskFinished() {
+        if (--pendingTasks == 0) {
+            busyListener.accept(false);
+        }
+    }
+
+    // Runs a final task (e.g. closing the connection) after all pending work,
+    // stops the database thread and closes the readers, waiting up to 5 s for
+    // each. Blocks the caller, so the window uses shutdownInBackground.
+    void shutdown(Runnable finalTask) {
+        stop(finalTask).run();
+    }
+
+    // Like shutdown, but waits on a new (non-daemon) thread, which then runs
+    // whenStopped; the EDT is free at once.
+    void shutdownInBackground(Runnable finalTask, Runnable whenStopped) {
+        Runnable awaitStop = stop(finalTask);
+        new Thread(() -> {
+            awaitStop.run();
+            whenStopped.run();
+        }, "database shutdown").start();
+    }
+
+    // Stops taking tasks and returns the wait for the threads to finish
+    private Runnable stop(Runnable finalTask) {
+        if (executor.isShutdown()) {
+            return () -> { };
+        }
+        executor.execute(finalTask);
+        executor.shutdown();
+        ExecutorService readerPool = readers;
+        List<BillRepository> opened = new ArrayList<>(allReaders);
+        if (readerPool != null) {
+            readerPool.shutdown();
+        }
+        return () -> {
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+                if (readerPool != null && readerPool.awaitTermination(5, TimeUnit.SECONDS)) {
+                    close(opened);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    private static void close(List<BillRepository> readers) {
+        for (BillRepository reader : readers) {
+            reader.close();
+            try {
+                reader.getConnection().close();
+            } catch (SQLException e) {
+                System.err.println("Error closing reader: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package meralco;
+
+import java.sql.*;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Tracks which positive record IDs are free so the lowest one can be handed out
+// without rescanning the table. Free IDs below the highest used ID are kept as
+// ranges (start -> end, inclusive); everything above the highest ID is free.
+// Not thread-safe: only use it from the database thread.
+class IdAllocator {
+    private final TreeMap<Integer, Integer> freeRanges = new TreeMap<>();
+    private int maxId = 0;
+
+    // Rebuilds the free ranges from the table with a single gap query.
+    void load(Connection connection) throws SQLException {
+        freeRanges.clear();
+        maxId = 0;
+
+        String gapSql = "SELECT id + 1, next_id - 1 FROM (" +
+                "SELECT id, LEAD(id) OVER (ORDER BY id) AS next_id FROM bills WHERE id > 0) " +
+                "WHERE next_id > id + 1";
+        String boundsSql = "SELECT MIN(id), MAX(id) FROM bills WHERE id > 0";
+
+        try (Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(boundsSql)) {
+                if (rs.next()) {
+                    int minId = rs.getInt(1);
+                    if (rs.wasNull()) {
+                        return;
+                    }
+                    maxId = rs.getInt(2);
+                    if (minId > 1) {
+                        freeRanges.put(1, minId - 1);
+                    }
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(gapSql)) {
+                while (rs.next()) {
+                    freeRanges.put(rs.getInt(1), rs.getInt(2));
+                }
+            }
+        }
+    }
+
+    // Lowest ID not in use.
+    int nextId() {
+        return freeRanges.isEmpty() ? maxId + 1 : freeRanges.firstKey();
+    }
+
+    boolean isUsed(int id) {
+        if (id <= 0 || id > maxId) {
+            return false;
+        }
+        Map.Entry<Integer, Integer> range = freeRanges.floorEntry(id);
+        return range == null || range.getValue() < id;
+    }
+
+    void markUsed(int id) {
+        if (id <= 0) {
+            return;
+        }
+        if (id > maxId) {
+            if (id > maxId + 1) {
+                freeRanges.put(maxId + 1, id - 1);
+            }
+            maxId = id;
+            return;
+        }
+
+        Map.Entry<Integer, Integer> range = freeRanges.floorEntry(id);
+        if (range == null || range.getValue() < id) {
+            return;
+        }
+        int start = range.getKey();
+        int end = range.getValue();
+        freeRanges.remove(start);
+        if (start < id) {
+            freeRanges.put(start, id - 1);
+        }
+        if (id < end) {
+            freeRanges.put(id + 1, end);
+        }
+    }
+
+    void markFree(int id) {
+        if (id <= 0 || id > maxId) {
+            return;
+        }
+        Map.Entry<Integer, Integer> range = freeRanges.floorEntry(id);
+        if (range != null && range.getValue() >= id) {
+            return;
+        }
+
+        int start = id;
+        int end = id;
+        if (range != null && range.getValue() == id - 1) {
+            start = range.getKey();
+        }
+        Integer nextEnd = freeRanges.remove(id + 1);
+        if (nextEnd != null) {
+            end = nextEnd;
+        }
+
+        if (end == maxId) {
+            // The top of the used range is now free; lower the high-water mark
+            freeRanges.remove(start);
+            maxId = start - 1;
+        } else {
+            freeRanges.put(start, end);
+        }
+    }
+}
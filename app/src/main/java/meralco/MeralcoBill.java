@@ -0,0 +1,1679 @@
+package meralco;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.RoundingMode;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.text.DecimalFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+import javax.swing.table.DefaultTableCellRenderer;
+
+public class MeralcoBill extends JFrame {
+    // UI Components
+    private JTextField kwhField, rateField, searchField, dateField, idField;
+    private JTextArea memoArea;
+    private JLabel totalLabel, statusLabel;
+    private JProgressBar busyIndicator;
+    private MetricsPanel metricsPanel;
+    private JButton computeButton, saveButton, editButton, deleteButton,
+            viewAllButton, searchButton, clearButton, importButton, exportButton;
+    private JTable recordsTable;
+    private BillTableModel tableModel;
+    private BillRowSorter rowSorter;
+    private JScrollPane tableScrollPane, memoScrollPane;
+    private JComboBox<String> searchTypeComboBox;
+    private JComboBox<String> sortComboBox;
+    // Order picked in the sort combo, for every listing and search
+    private BillOrder recordOrder = BillOrder.NEWEST_FIRST;
+    private JCheckBox searchAsYouTypeBox;
+
+    // Search-as-you-type waits for a pause in typing before querying
+    private static final int SEARCH_DELAY_MILLIS = 250;
+    private final Timer searchDelay = new Timer(SEARCH_DELAY_MILLIS, e -> searchAsYouType());
+
+
+    // Database, unless --db names another file
+    private static final String DEFAULT_DB_URL = "jdbc:sqlite:meralco_bills.db";
+    private final String dbUrl;
+    // Read-only connections beside the one writer (see DatabaseExecutor)
+    private static final int READER_CONNECTIONS = 3;
+
+    // Account whose bills are listed and saved
+    private int currentAccountId;
+    private JComboBox<Account> accountComboBox;
+    private boolean updatingAccounts = false;
+
+    // Optional itemized tariff, used when the rate field is left empty
+    private static final String TARIFF_FILE = "tariff.properties";
+    private TariffEngine tariff;
+    private final RateSchedule rateSchedule = new RateSchedule();
+
+    // Date part of a stored reading; the time of day is added when saving
+    static final String DATE_PATTERN = "\\d{4}-\\d{2}-\\d{2}";
+    // Opened on the database thread after the window shows (see openDatabase)
+    private volatile Connection dbConnection;
+    private BillRepository billRepository; // only used on the database thread
+    private final OperationMetrics metrics = new OperationMetrics();
+    private final DatabaseExecutor dbExecutor = new DatabaseExecutor(metrics);
+
+    // Current calculation
+    private double currentTotal = 0.0;
+    private boolean isCalculated = false;
+    private final IdAllocator idAllocator = new IdAllocator(); // only touched on the database thread
+    private int selectedRecordId = -1;
+    private boolean isEditingExistingRecord = false;
+
+    public MeralcoBill(String dbUrl, int accountId) {
+        this.dbUrl = dbUrl;
+        this.currentAccountId = accountId;
+        setupUI();
+        setupEventHandlers();
+        loadTariff();
+        openDatabase();
+        // Queued behind the open; only the first page, so the table fills in
+        // without reading every row of a small result
+        tableModel.setFirstPageQuery(BillFilter.ALL.inAccount(accountId), recordOrder,
+                count -> updateStatus("All records loaded (" + count + " total)."),
+                e -> showMessage("Error loading records: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE));
+        loadAccounts(accountId);
+        dbExecutor.execute("startup", () -> {
+            updateAvailableIds();
+            rateSchedule.load(dbConnection);
+            return null;
+        }, ignored -> { }, e -> showMessage("Error loading rate schedule: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    private void setupUI() {
+        setTitle("Meralco Bill Calculator");
+        setSize(750, 700);
+
+        // dispose() exits once pending writes are saved
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        setLocationRelativeTo(null);
+        setLayout(new BorderLayout(10, 10));
+
+        // Create main panels
+        add(createInputPanel(), BorderLayout.NORTH);
+        add(createTablePanel(), BorderLayout.CENTER);
+        add(createStatusPanel(), BorderLayout.SOUTH);
+
+        // Set look and feel
+        try {
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+            SwingUtilities.updateComponentTreeUI(this);
+        } catch (Exception e) {
+            // Use default look and feel
+        }
+    }
+
+    private JPanel createInputPanel() {
+        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
+        mainPanel.setBorder(BorderFactory.createTitledBorder("Bill Calculator"));
+        mainPanel.setFont(new Font("Arial", Font.BOLD, 14));
+        mainPanel.add(createAccountPanel(), BorderLayout.NORTH);
+
+        // Input fields panel
+        JPanel inputPanel = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        // Font for labels
+        Font labelFont = new Font("Arial", Font.BOLD, 14);
+        Font inputFont = new Font("Arial", Font.PLAIN, 16);
+
+        // ID input
+        gbc.gridx = 0; gbc.gridy = 0;
+        JLabel idLabel = new JLabel("ID:");
+        idLabel.setFont(labelFont);
+        inputPanel.add(idLabel, gbc);
+
+        gbc.gridx = 1; gbc.fill = GridBagConstraints.HORIZONTAL;
+        idField = new JTextField(15);
+        idField.setFont(inputFont);
+        idField.setToolTipText("Leave empty for auto-assignment of next available ID");
+        inputPanel.add(idField, gbc);
+
+        // kWh input
+        gbc.gridx = 0; gbc.gridy = 1; gbc.fill = GridBagConstraints.NONE;
+        JLabel kwhLabel = new JLabel("kWh Used:");
+        kwhLabel.setFont(labelFont);
+        inputPanel.add(kwhLabel, gbc);
+
+        gbc.gridx = 1; gbc.fill = GridBagConstraints.HORIZONTAL;
+        kwhField = new JTextField(15);
+        kwhField.setFont(inputFont);
+        inputPanel.add(kwhField, gbc);
+
+        // Rate input
+        gbc.gridx = 0; gbc.gridy = 2; gbc.fill = GridBagConstraints.NONE;
+        JLabel rateLabel = new JLabel("Rate per kWh (₱):");
+        rateLabel.setFont(labelFont);
+        inputPanel.add(rateLabel, gbc);
+
+        gbc.gridx = 1; gbc.fill = GridBagConstraints.HORIZONTAL;
+        rateField = new JTextField(15);
+        rateField.setFont(inputFont);
+        inputPanel.add(rateField, gbc);
+
+        // Date input
+        gbc.gridx = 0; gbc.gridy = 3; gbc.fill = GridBagConstraints.NONE;
+        JLabel dateLabel = new JLabel("Date (YYYY-MM-DD):");
+        dateLabel.setFont(labelFont);
+        inputPanel.add(dateLabel, gbc);
+
+        gbc.gridx = 1; gbc.fill = GridBagConstraints.HORIZONTAL;
+        dateField = new JTextField(15);
+        dateField.setFont(inputFont);
+        dateField.setText(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
+        inputPanel.add(dateField, gbc);
+
+        // Total display
+        gbc.gridx = 0; gbc.gridy = 4; gbc.fill = GridBagConstraints.NONE;
+        JLabel totalTextLabel = new JLabel("Total Bill:");
+        totalTextLabel.setFont(labelFont);
+        inputPanel.add(totalTextLabel, gbc);
+
+        gbc.gridx = 1; gbc.fill = GridBagConstraints.HORIZONTAL;
+        totalLabel = new JLabel("₱0.00");
+        totalLabel.setFont(new Font("Arial", Font.BOLD, 22)); // Larger font for total
+        totalLabel.setForeground(new Color(0, 128, 0));
+        totalLabel.setBorder(BorderFactory.createLoweredBevelBorder());
+        totalLabel.setOpaque(true);
+        totalLabel.setBackground(Color.WHITE);
+        totalLabel.setHorizontalAlignment(SwingConstants.LEFT);
+        totalLabel.setPreferredSize(new Dimension(150, 30));
+        inputPanel.add(totalLabel, gbc);
+
+        // Memo area
+        gbc.gridx = 0; gbc.gridy = 5; gbc.fill = GridBagConstraints.NONE;
+        JLabel memoLabel = new JLabel("Memo:");
+        memoLabel.setFont(labelFont);
+        inputPanel.add(memoLabel, gbc);
+
+        gbc.gridx = 1; gbc.gridy = 5; gbc.fill = GridBagConstraints.BOTH;
+        gbc.weightx = 1.0; gbc.weighty = 1.0;
+        memoArea = new JTextArea(3, 15);
+        memoArea.setFont(inputFont);
+        memoArea.setLineWrap(true);
+        memoArea.setWrapStyleWord(true);
+        memoScrollPane = new JScrollPane(memoArea);
+        inputPanel.add(memoScrollPane, gbc);
+
+        mainPanel.add(inputPanel, BorderLayout.CENTER);
+
+        // Buttons panel
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 5));
+        buttonPanel.setBorder(BorderFactory.createEmptyBorder(5, 0, 5, 0));
+
+        Font buttonFont = new Font("Arial", Font.BOLD, 14);
+
+        computeButton = createStyledButton("Calculate", new Color(70, 130, 180), buttonFont);
+        saveButton = createStyledButton("Save Record", new Color(34, 139, 34), buttonFont);
+        saveButton.setEnabled(false);
+        editButton = createStyledButton("Edit Selected", new Color(255, 140, 0), buttonFont);
+        deleteButton = createStyledButton("Delete Selected", new Color(220, 20, 60), buttonFont);
+        clearButton = createStyledButton("Clear Fields", new Color(128, 128, 128), buttonFont);
+
+        buttonPanel.add(computeButton);
+        buttonPanel.add(saveButton);
+        buttonPanel.add(editButton);
+        buttonPanel.add(deleteButton);
+        buttonPanel.add(clearButton);
+
+        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+
+        return mainPanel;
+    }
+
+    private JPanel createAccountPanel() {
+        JPanel accountPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        JLabel accountLabel = new JLabel("Account:");
+        accountLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        accountPanel.add(accountLabel);
+
+        accountComboBox = new JComboBox<>();
+        accountComboBox.setFont(new Font("Arial", Font.PLAIN, 14));
+        accountComboBox.setPrototypeDisplayValue(new Account(0, "Account name here"));
+        accountComboBox.addActionListener(e -> {
+            Account selected = (Account) accountComboBox.getSelectedItem();
+            if (!updatingAccounts && selected != null && selected.id != currentAccountId) {
+                switchAccount(selected);
+            }
+        });
+        accountPanel.add(accountComboBox);
+
+        JButton newAccountButton = new JButton("New Account...");
+        newAccountButton.addActionListener(e -> createAccount());
+        accountPanel.add(newAccountButton);
+
+        JButton portfolioButton = new JButton("Portfolio");
+        portfolioButton.setToolTipText("Totals and next month's forecast for every account");
+        portfolioButton.addActionListener(e -> showPortfolio());
+        accountPanel.add(portfolioButton);
+        return accountPanel;
+    }
+
+    // Fills the account selector and selects the account with the given id,
+    // or the first one if there is none.
+    private void loadAccounts(int selectId) {
+        dbExecutor.query("accounts", reader -> Account.loadAll(reader.getConnection()), accounts -> {
+            Account selected = null;
+            updatingAccounts = true;
+            try {
+                accountComboBox.removeAllItems();
+                for (Account account : accounts) {
+                    accountComboBox.addItem(account);
+                    if (account.id == selectId) {
+                        selected = account;
+                    }
+                }
+                accountComboBox.setSelectedItem(selected);
+            } finally {
+                updatingAccounts = false;
+            }
+            if (selected == null && !accounts.isEmpty()) {
+                switchAccount(accounts.get(0));
+            } else if (selected != null && selected.id != currentAccountId) {
+                switchAccount(selected);
+            }
+        }, e -> showMessage("Error loading accounts: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    // The selected account, or a stand-in until the accounts have loaded
+    private Account currentAccount() {
+        Account selected = (Account) accountComboBox.getSelectedItem();
+        return selected != null ? selected : new Account(currentAccountId, "Account " + currentAccountId);
+    }
+
+    private void switchAccount(Account account) {
+        currentAccountId = account.id;
+        if (accountComboBox.getSelectedItem() != account) {
+            updatingAccounts = true;
+            accountComboBox.setSelectedItem(account);
+            updatingAccounts = false;
+        }
+        clearFields();
+        searchField.setText("");
+        searchDelay.stop();
+        loadAllRecords();
+    }
+
+    private void createAccount() {
+        String name = JOptionPane.showInputDialog(this, "Name of the new account:", "New Account", JOptionPane.PLAIN_MESSAGE);
+        if (name == null || name.trim().isEmpty()) {
+            return;
+        }
+        String accountName = name.trim();
+        dbExecutor.execute("new account", () -> Account.create(dbConnection, accountName), account -> {
+            loadAccounts(account.id);
+            updateStatus("Account " + account.name + " created.");
+        }, e -> showMessage("Error creating account: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    private void showPortfolio() {
+        updateStatus("Totalling every account...");
+        TariffEngine tariff = this.tariff;
+        dbExecutor.query("portfolio", reader -> PortfolioReport.build(reader.getConnection(), dbUrl, rateSchedule, tariff), report -> {
+            updateStatus("Portfolio of " + report.accounts.size() + " account(s) loaded.");
+            new PortfolioDialog(this, report).setVisible(true);
+        }, e -> showMessage("Error totalling accounts: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    private JButton createStyledButton(String text, Color bgColor, Font font) {
+        JButton button = new JButton(text);
+        button.setBackground(bgColor);
+        button.setForeground(Color.BLACK);
+        button.setFont(font);
+        button.setFocusPainted(false);
+        button.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createRaisedBevelBorder(),
+                BorderFactory.createEmptyBorder(5, 10, 5, 10)
+        ));
+        return button;
+    }
+
+    private JPanel createTablePanel() {
+        JPanel mainPanel = new JPanel(new BorderLayout(5, 5));
+        mainPanel.setBorder(BorderFactory.createTitledBorder("Bill Records"));
+
+        // Search panel
+        JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 5));
+        searchPanel.add(new JLabel("Search by:"));
+
+        JButton estimatedBillingButton = createStyledButton("Estimated Billing", new Color(75, 0, 130), new Font("Arial", Font.BOLD, 12));
+        searchPanel.add(estimatedBillingButton);
+        estimatedBillingButton.addActionListener(e -> showEstimatedBilling());
+
+
+        String[] searchTypes = {"ID", "Date", "Rate", "Memo"};
+        searchTypeComboBox = new JComboBox<>(searchTypes);
+        searchTypeComboBox.setFont(new Font("Arial", Font.PLAIN, 14));
+        searchPanel.add(searchTypeComboBox);
+
+        searchField = new JTextField(20);
+        searchField.setFont(new Font("Arial", Font.PLAIN, 14));
+        searchField.setToolTipText(BillFilter.ID_HELP);
+        searchPanel.add(searchField);
+
+        searchTypeComboBox.addActionListener(e -> {
+            switch ((String) searchTypeComboBox.getSelectedItem()) {
+                case "ID":
+                    searchField.setToolTipText(BillFilter.ID_HELP);
+                    break;
+                case "Date":
+                    searchField.setToolTipText(BillFilter.DATE_HELP);
+                    break;
+                case "Rate":
+                    searchField.setToolTipText(BillFilter.RATE_HELP);
+                    break;
+                default:
+                    searchField.setToolTipText(null);
+                    break;
+            }
+        });
+
+        searchButton = createStyledButton("Search", new Color(70, 130, 180), new Font("Arial", Font.BOLD, 12));
+        viewAllButton = createStyledButton("View All", new Color(128, 128, 128), new Font("Arial", Font.BOLD, 12));
+        searchPanel.add(searchButton);
+        searchPanel.add(viewAllButton);
+        searchAsYouTypeBox = new JCheckBox("As you type");
+        searchAsYouTypeBox.setToolTipText("Search while typing, once typing pauses");
+        searchPanel.add(searchAsYouTypeBox);
+        importButton = createStyledButton("Import CSV", new Color(128, 128, 128), new Font("Arial", Font.BOLD, 12));
+        searchPanel.add(importButton);
+        exportButton = createStyledButton("Export", new Color(128, 128, 128), new Font("Arial", Font.BOLD, 12));
+        exportButton.setToolTipText("Export the records currently listed (all records or the current search)");
+        searchPanel.add(exportButton);
+        mainPanel.add(searchPanel, BorderLayout.NORTH);
+
+        // Table setup
+        tableModel = new BillTableModel(dbExecutor, metrics);
+
+        recordsTable = new JTable(tableModel) {
+            @Override
+            protected void paintComponent(Graphics g) {
+                OperationMetrics.Timer timer = metrics.start(OperationMetrics.PAINT, "records table");
+                try {
+                    super.paintComponent(g);
+                } finally {
+                    Rectangle clip = g.getClipBounds();
+                    int rows = clip == null || getRowCount() == 0 ? 0
+                            : clip.height / Math.max(1, getRowHeight()) + 1;
+                    timer.stop(Math.min(rows, getRowCount()), false);
+                }
+            }
+        };
+        recordsTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        recordsTable.getTableHeader().setReorderingAllowed(false);
+        recordsTable.setFont(new Font("Arial", Font.PLAIN, 14));
+        recordsTable.getTableHeader().setFont(new Font("Arial", Font.BOLD, 14));
+        recordsTable.setDefaultRenderer(Double.class, new AmountRenderer());
+        rowSorter = new BillRowSorter(tableModel);
+        rowSorter.setSortKeys(BillRowSorter.keysFor(recordOrder));
+        recordsTable.setRowSorter(rowSorter);
+
+        recordsTable.getColumnModel().getColumn(0).setPreferredWidth(50);
+        recordsTable.getColumnModel().getColumn(1).setPreferredWidth(150);
+        recordsTable.getColumnModel().getColumn(2).setPreferredWidth(80);
+        recordsTable.getColumnModel().getColumn(3).setPreferredWidth(80);
+        recordsTable.getColumnModel().getColumn(4).setPreferredWidth(100);
+        recordsTable.getColumnModel().getColumn(5).setPreferredWidth(250);
+
+        tableScrollPane = new JScrollPane(recordsTable);
+        tableScrollPane.setPreferredSize(new Dimension(0, 300));
+        mainPanel.add(tableScrollPane, BorderLayout.CENTER);
+
+        // Sort panel (NEW)
+        JPanel sortPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 5));
+        sortPanel.add(new JLabel("Sort by:"));
+
+        String[] sortOptions = {"Date (Newest First)", "Date (Oldest First)", "ID (Ascending)", "ID (Descending)"};
+        sortComboBox = new JComboBox<>(sortOptions);
+        sortComboBox.setFont(new Font("Arial", Font.PLAIN, 14));
+        sortPanel.add(sortComboBox);
+
+        JButton rateScheduleButton = createStyledButton("Rate Schedule", new Color(128, 128, 128), new Font("Arial", Font.BOLD, 12));
+        rateScheduleButton.setToolTipText("Rates by effective date, used when the rate field is left empty");
+        rateScheduleButton.addActionListener(e -> {
+            if (dbConnection == null) {
+                updateStatus("Opening the database, please wait...");
+                return;
+            }
+            new RateScheduleDialog(this, dbExecutor, dbConnection, rateSchedule).setVisible(true);
+        });
+        sortPanel.add(rateScheduleButton);
+
+        JButton dashboardButton = createStyledButton("Dashboard", new Color(128, 128, 128), new Font("Arial", Font.BOLD, 12));
+        dashboardButton.setToolTipText("Usage, totals and year-over-year change by month");
+        dashboardButton.addActionListener(e ->
+                new DashboardDialog(this, dbExecutor, currentAccount()).setVisible(true));
+        sortPanel.add(dashboardButton);
+
+        JButton recomputeButton = createStyledButton("Recompute Totals", new Color(128, 128, 128), new Font("Arial", Font.BOLD, 12));
+        recomputeButton.setToolTipText("Apply a corrected rate to stored bills");
+        recomputeButton.addActionListener(e -> recomputeTotals());
+        sortPanel.add(recomputeButton);
+
+        sortComboBox.addActionListener(e -> {
+            String selected = (String) sortComboBox.getSelectedItem();
+            switch (selected) {
+                case "Date (Newest First)":
+                    sortRecords(BillOrder.NEWEST_FIRST);
+                    break;
+                case "Date (Oldest First)":
+                    sortRecords(BillOrder.OLDEST_FIRST);
+                    break;
+                case "ID (Ascending)":
+                    sortRecords(BillOrder.ID_ASCENDING);
+                    break;
+                case "ID (Descending)":
+                    sortRecords(BillOrder.ID_DESCENDING);
+                    break;
+            }
+        });
+
+        mainPanel.add(sortPanel, BorderLayout.SOUTH);
+
+        // Row selection logic
+        recordsTable.getSelectionModel().addListSelectionListener(new ListSelectionListener() {
+            @Override
+            public void valueChanged(ListSelectionEvent e) {
+                if (!e.getValueIsAdjusting()) {
+                    int selectedRow = recordsTable.getSelectedRow();
+                    int row = selectedRow >= 0 ? recordsTable.convertRowIndexToModel(selectedRow) : -1;
+                    if (row >= 0 && tableModel.getRecordId(row) >= 0) {
+                        idField.setText(String.valueOf(tableModel.getRecordId(row)));
+                        kwhField.setText(String.format("%.4f", tableModel.getKwh(row)));
+                        rateField.setText(String.format("%.4f", tableModel.getRate(row)));
+                        totalLabel.setText(String.format("₱%.4f", tableModel.getTotal(row)));
+                        dateField.setText(tableModel.getTimestamp(row).split(" ")[0]);
+                        memoArea.setText(tableModel.getMemo(row));
+                        saveButton.setEnabled(false);
+                        isCalculated = true;
+                        currentTotal = tableModel.getTotal(row);
+                        selectedRecordId = tableModel.getRecordId(row);
+                        isEditingExistingRecord = true;
+                    }
+                }
+            }
+        });
+
+        return mainPanel;
+    }
+
+    // Sorts a resident result in the table; a paged one is queried again in
+    // the new order. Memo matches keep their relevance order.
+    private void sortRecords(BillOrder order) {
+        recordOrder = order;
+        rowSorter.setSortKeys(BillRowSorter.keysFor(order));
+        if (tableModel.getFilter().getRankOrder() != null) {
+            updateStatus("Memo matches stay in order of relevance; " + order + " applies to the next listing");
+            return;
+        }
+        if (tableModel.isResident()) {
+            updateStatus("Records sorted by: " + order + " (" + tableModel.getRowCount() + " total)");
+            return;
+        }
+        tableModel.setQuery(tableModel.getFilter(), order,
+                count -> updateStatus("Records sorted by: " + order + " (" + count + " total)"),
+                e -> showMessage("Error loading records: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+
+    private JPanel createStatusPanel() {
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        JPanel statusLine = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        statusLabel = new JLabel("Ready | 🔔 Note: Readings due 12–13th monthly");
+        statusLabel.setFont(new Font("Arial", Font.ITALIC, 14));
+        statusLine.add(statusLabel);
+
+        busyIndicator = new JProgressBar();
+        busyIndicator.setIndeterminate(true);
+        busyIndicator.setPreferredSize(new Dimension(80, 14));
+        busyIndicator.setVisible(false);
+        statusLine.add(busyIndicator);
+
+        // Optional timings of database work, table updates and painting
+        JToggleButton metricsButton = new JToggleButton("Metrics");
+        metricsButton.setToolTipText("Show how long database operations, table updates and repaints take");
+        metricsPanel = new MetricsPanel(metrics);
+        metricsPanel.setVisible(false);
+        metricsButton.addActionListener(e -> {
+            metricsPanel.setVisible(metricsButton.isSelected());
+            revalidate();
+        });
+        statusLine.add(metricsButton);
+
+        statusPanel.add(statusLine, BorderLayout.NORTH);
+        statusPanel.add(metricsPanel, BorderLayout.CENTER);
+        return statusPanel;
+    }
+
+    private void setupEventHandlers() {
+        dbExecutor.setBusyListener(busy -> {
+            busyIndicator.setVisible(busy);
+            setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+        });
+
+        computeButton.addActionListener(e -> calculateBill());
+        saveButton.addActionListener(e -> saveRecord());
+        editButton.addActionListener(e -> editSelectedRecord());
+        deleteButton.addActionListener(e -> deleteSelectedRecord());
+        clearButton.addActionListener(e -> clearFields());
+        searchButton.addActionListener(e -> searchRecords());
+        viewAllButton.addActionListener(e -> loadAllRecords());
+        importButton.addActionListener(e -> importRecords());
+        exportButton.addActionListener(e -> exportRecords());
+
+        // Enter key support for calculation and search
+        kwhField.addActionListener(e -> calculateBill());
+        rateField.addActionListener(e -> calculateBill());
+        dateField.addActionListener(e -> calculateBill());
+        searchField.addActionListener(e -> searchRecords());
+
+        searchDelay.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                scheduleSearch();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                scheduleSearch();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+        searchTypeComboBox.addActionListener(e -> scheduleSearch());
+        searchAsYouTypeBox.addActionListener(e -> scheduleSearch());
+    }
+
+    // Restarts the typing pause; each new search replaces (and interrupts)
+    // the previous one, so only the latest term is ever waited on.
+    private void scheduleSearch() {
+        if (searchAsYouTypeBox.isSelected()) {
+            searchDelay.restart();
+        } else {
+            searchDelay.stop();
+        }
+    }
+
+    private void calculateBill() {
+        try {
+            String kwhText = kwhField.getText().trim();
+            String rateText = rateField.getText().trim();
+            if (rateText.isEmpty()) {
+                rateText = fillScheduledRate(dateField.getText().trim());
+            }
+
+            if (!kwhText.isEmpty() && rateText.isEmpty() && tariff != null) {
+                calculateTariffBill(Double.parseDouble(kwhText));
+                return;
+            }
+
+            if (kwhText.isEmpty() || rateText.isEmpty()) {
+                showMessage("Please enter both kWh usage and rate.", "Input Required", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+
+            double kwh = Double.parseDouble(kwhText);
+            double rate = Double.parseDouble(rateText);
+
+            if (kwh < 0 || rate < 0) {
+                showMessage("Please enter positive numbers only.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            currentTotal = calculateTotal(kwh, rate);
+            totalLabel.setText(String.format("₱%.4f", currentTotal));
+            totalLabel.setToolTipText(null);
+            saveButton.setEnabled(true);
+            isCalculated = true;
+
+            updateStatus("Bill calculated successfully. Click 'Save Record' to store in database.");
+
+        } catch (NumberFormatException e) {
+            showMessage("Please enter valid numbers for kWh and rate.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+            clearCalculation();
+        }
+    }
+
+    // Itemizes the bill with the loaded tariff and fills in the average rate it
+    // works out to, so the record saves like a flat-rate one.
+    private void calculateTariffBill(double kwh) {
+        if (kwh < 0) {
+            showMessage("Please enter positive numbers only.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        TariffEngine.Bill bill = tariff.calculate(kwh);
+        StringBuilder breakdown = new StringBuilder("<html><b>Tariff ").append(tariff.getVersion()).append("</b>");
+        for (int i = 0; i < tariff.getComponentCount(); i++) {
+            breakdown.append("<br>").append(tariff.getComponentName(i)).append(": ₱").append(bill.getLine(i));
+        }
+        breakdown.append("</html>");
+
+        currentTotal = bill.getTotal().doubleValue();
+        rateField.setText(String.format("%.6f", bill.getEffectiveRate()));
+        totalLabel.setText(String.format("₱%.4f", currentTotal));
+        totalLabel.setToolTipText(breakdown.toString());
+        saveButton.setEnabled(true);
+        isCalculated = true;
+
+        updateStatus("Bill calculated with tariff " + tariff.getVersion() + ". Hover over the total for the breakdown.");
+    }
+
+    // Puts the scheduled rate for a reading date into the rate field and returns
+    // it, or returns "" if the date is invalid or has no scheduled rate.
+    private String fillScheduledRate(String date) {
+        if (!date.matches(DATE_PATTERN)) {
+            return "";
+        }
+        Double rate;
+        try {
+            rate = rateSchedule.rateOn(date);
+        } catch (DateTimeParseException e) {
+            return "";
+        }
+        if (rate == null) {
+            return "";
+        }
+        String rateText = Double.toString(rate);
+        rateField.setText(rateText);
+        return rateText;
+    }
+
+    static double calculateTotal(double kwh, double rate) {
+        return kwh * rate;
+    }
+
+    private void saveRecord() {
+        if (!isCalculated) {
+            showMessage("Please calculate the bill first.", "No Calculation", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        try {
+            double kwh = Double.parseDouble(kwhField.getText().trim());
+            double rate = Double.parseDouble(rateField.getText().trim());
+            String date = dateField.getText().trim();
+            String memo = memoArea.getText().trim();
+            String idText = idField.getText().trim();
+
+            if (date.isEmpty()) {
+                showMessage("Please enter a date.", "Input Required", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+
+            if (!date.matches(DATE_PATTERN)) {
+                showMessage("Please enter date in YYYY-MM-DD format.", "Invalid Date", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            // 0 means auto-assign the next available ID
+            int requestedId = 0;
+            if (!idText.isEmpty()) {
+                // Use specified ID
+                requestedId = Integer.parseInt(idText);
+                if (requestedId <= 0) {
+                    showMessage("ID must be a positive number.", "Invalid ID", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+            }
+
+            // Duplicates are allowed only when re-saving the record being edited
+            boolean checkDuplicate = !isEditingExistingRecord || requestedId != selectedRecordId;
+            double total = currentTotal;
+            String timestamp = date + " " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
+            int idToSave = requestedId;
+            int accountId = currentAccountId;
+            BillTableModel.RowChange change = tableModel.trackChange();
+
+            dbExecutor.execute("save", () -> {
+                int recordId = idToSave == 0 ? getNextAvailableId() : idToSave;
+                if (idToSave != 0 && checkDuplicate && billRepository.idExists(recordId)) {
+                    return -recordId;
+                }
+
+                billRepository.insert(accountId, recordId, kwh, rate, total, timestamp, memo);
+                idAllocator.markUsed(recordId);
+                change.after(recordId);
+                return recordId;
+            }, recordId -> {
+                tableModel.applyChange(change);
+                if (recordId < 0) {
+                    showMessage("ID " + -recordId + " already exists. Please choose a different ID.", "Duplicate ID", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                clearFields();
+                updateStatus("Record saved successfully with ID: " + recordId);
+            }, e -> {
+                tableModel.applyChange(change);
+                showMessage("Error saving record: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+            });
+        } catch (NumberFormatException e) {
+            showMessage("Please enter valid numbers for ID, kWh and rate.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void editSelectedRecord() {
+        int selectedRow = recordsTable.getSelectedRow();
+        if (selectedRow == -1) {
+            showMessage("Please select a record to edit.", "No Selection", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        // -1 while the row's page is still loading
+        int oldId = tableModel.getRecordId(recordsTable.convertRowIndexToModel(selectedRow));
+        if (oldId <= 0) {
+            updateStatus("The selected record is still loading; please try again.");
+            return;
+        }
+
+        try {
+            String kwhText = kwhField.getText().trim();
+            String rateText = rateField.getText().trim();
+            String date = dateField.getText().trim();
+            String memo = memoArea.getText().trim();
+            String idText = idField.getText().trim();
+            if (rateText.isEmpty()) {
+                rateText = fillScheduledRate(date);
+            }
+
+            if (kwhText.isEmpty() || rateText.isEmpty() || date.isEmpty() || idText.isEmpty()) {
+                showMessage("Please enter ID, kWh usage, rate, and date.", "Input Required", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+
+            if (!date.matches(DATE_PATTERN)) {
+                showMessage("Please enter date in YYYY-MM-DD format.", "Invalid Date", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            double kwh = Double.parseDouble(kwhText);
+            double rate = Double.parseDouble(rateText);
+            int newId = Integer.parseInt(idText);
+
+            if (kwh < 0 || rate < 0) {
+                showMessage("Please enter positive numbers only.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            if (newId <= 0) {
+                showMessage("ID must be a positive number.", "Invalid ID", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            double total = calculateTotal(kwh, rate);
+            String timestamp = date + " " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
+            BillTableModel.RowChange change = tableModel.trackChange();
+
+            dbExecutor.execute("edit", () -> {
+                // Check, locate and write in one transaction: one commit, and
+                // no other write can take the new ID in between. Returns the
+                // rows updated, or -1 if the new ID is taken.
+                int updated = billRepository.inTransaction(() -> {
+                    // Check if new ID already exists (unless it's the same record)
+                    if (newId != oldId && billRepository.idExists(newId)) {
+                        return -1;
+                    }
+
+                    change.before(oldId);
+                    // A new ID is set in the same UPDATE, so the record is never missing
+                    int rows = billRepository.update(oldId, newId, kwh, rate, total, timestamp, memo);
+                    change.after(newId);
+                    return rows;
+                });
+                if (updated > 0 && newId != oldId) {
+                    idAllocator.markFree(oldId);
+                    idAllocator.markUsed(newId);
+                }
+                return updated;
+            }, updated -> {
+                tableModel.applyChange(change);
+                if (updated < 0) {
+                    showMessage("ID " + newId + " already exists. Please choose a different ID.", "Duplicate ID", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                if (updated == 0) {
+                    // Deleted or moved since it was selected, e.g. by the API or an import
+                    showMessage("Record " + oldId + " no longer exists.", "Record Not Found", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                clearFields();
+                updateStatus("Record updated successfully!");
+            }, e -> {
+                tableModel.applyChange(change);
+                showMessage("Error updating record: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+            });
+
+        } catch (NumberFormatException e) {
+            showMessage("Please enter valid numbers for ID, kWh and rate.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void deleteSelectedRecord() {
+        int selectedRow = recordsTable.getSelectedRow();
+        if (selectedRow == -1) {
+            showMessage("Please select a record to delete.", "No Selection", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        // -1 while the row's page is still loading
+        int recordId = tableModel.getRecordId(recordsTable.convertRowIndexToModel(selectedRow));
+        if (recordId <= 0) {
+            updateStatus("The selected record is still loading; please try again.");
+            return;
+        }
+
+        int confirm = JOptionPane.showConfirmDialog(
+                this,
+                "Are you sure you want to delete this record?",
+                "Confirm Delete",
+                JOptionPane.YES_NO_OPTION
+        );
+
+        if (confirm == JOptionPane.YES_OPTION) {
+            BillTableModel.RowChange change = tableModel.trackChange();
+
+            dbExecutor.execute("delete", () -> {
+                change.before(recordId);
+                billRepository.delete(recordId);
+                // Make this ID available for reuse
+                idAllocator.markFree(recordId);
+                change.after(recordId);
+                return recordId;
+            }, deletedId -> {
+                tableModel.applyChange(change);
+                clearFields();
+                updateStatus("Record deleted successfully! ID " + deletedId + " is now available for reuse.");
+            }, e -> {
+                tableModel.applyChange(change);
+                showMessage("Error deleting record: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+            });
+        }
+    }
+
+    private void clearFields() {
+        idField.setText("");
+        kwhField.setText("");
+        rateField.setText("");
+        dateField.setText(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
+        memoArea.setText("");
+        totalLabel.setText("₱0.00");
+        totalLabel.setToolTipText(null);
+        saveButton.setEnabled(false);
+        isCalculated = false;
+        currentTotal = 0.0;
+        selectedRecordId = -1;
+        isEditingExistingRecord = false;
+        recordsTable.clearSelection();
+        updateStatus("Fields cleared.");
+    }
+
+    private void searchRecords() {
+        searchDelay.stop();
+        String searchTerm = searchField.getText().trim();
+        if (searchTerm.isEmpty()) {
+            showMessage("Please enter a search term.", "Input Required", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        String searchType = (String) searchTypeComboBox.getSelectedItem();
+        BillFilter filter;
+        try {
+            filter = createSearchFilter(searchType, searchTerm).inAccount(currentAccountId);
+        } catch (IllegalArgumentException e) {
+            showMessage(e.getMessage(), "Invalid Search", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        // Point the table at the matching rows; pages load as they are scrolled to
+        tableModel.setQuery(filter, recordOrder, count -> {
+            // Show message if no records
+            if (count == 0) {
+                updateStatus("No records found for: " + searchType + " = " + searchTerm);
+                showMessage("No matching records found.", "Search Result", JOptionPane.INFORMATION_MESSAGE);
+            } else {
+                updateStatus("Search completed for: " + searchType + " = " + searchTerm + " (" + count + " found)");
+            }
+        }, e -> showMessage("Error searching records: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    // Search-as-you-type: an incomplete term or an empty result only shows in
+    // the status bar, and clearing the field lists every record again.
+    private void searchAsYouType() {
+        String searchTerm = searchField.getText().trim();
+        if (searchTerm.isEmpty()) {
+            loadAllRecords();
+            return;
+        }
+
+        String searchType = (String) searchTypeComboBox.getSelectedItem();
+        BillFilter filter;
+        try {
+            filter = createSearchFilter(searchType, searchTerm).inAccount(currentAccountId);
+        } catch (IllegalArgumentException e) {
+            updateStatus("Keep typing... " + e.getMessage());
+            return;
+        }
+
+        // Only the first page of matches, so each pause in typing stays cheap
+        tableModel.setFirstPageQuery(filter, recordOrder,
+                count -> updateStatus(count == 0 ? "No records found for: " + searchType + " = " + searchTerm
+                        : count + " found for: " + searchType + " = " + searchTerm),
+                e -> updateStatus("Error searching records: " + e.getMessage()));
+    }
+
+    static BillFilter createSearchFilter(String searchType, String searchTerm) {
+        switch (searchType) {
+            case "ID":
+                return BillFilter.byId(searchTerm);
+            case "Date":
+                return BillFilter.byDate(searchTerm);
+            case "Rate":
+                return BillFilter.byRate(searchTerm);
+            case "Memo":
+                return BillFilter.byMemo(searchTerm);
+            default:
+                throw new IllegalArgumentException("Invalid search type selected.");
+        }
+    }
+
+    private void loadAllRecords() {
+        tableModel.setQuery(BillFilter.ALL.inAccount(currentAccountId), recordOrder,
+                count -> updateStatus("All records loaded (" + count + " total)."),
+                e -> showMessage("Error loading records: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    // Re-runs the current search or listing, keeping its order.
+    private void reloadRecords() {
+        tableModel.refresh(count -> { },
+                e -> showMessage("Error loading records: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    private void importRecords() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import Bills from CSV");
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV files (id, date, kwh, rate, memo)", "csv"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        String path = chooser.getSelectedFile().getPath();
+        List<String> rejections = new ArrayList<>();
+        int accountId = currentAccountId;
+        updateStatus("Importing " + path + "...");
+
+        BillPricer pricer = new BillPricer(rateSchedule, tariff);
+        dbExecutor.execute("import", () -> {
+            BillImporter importer = new BillImporter(dbConnection, accountId, idAllocator, pricer);
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+                return importer.importCsv(reader, new BillImporter.Listener() {
+                    @Override
+                    public void progress(long rowsRead, long rowsImported) {
+                        SwingUtilities.invokeLater(() -> updateStatus("Importing... " + rowsImported + " of " + rowsRead + " rows saved"));
+                    }
+
+                    @Override
+                    public void rejected(long lineNumber, String reason) {
+                        if (rejections.size() < 20) {
+                            rejections.add("Line " + lineNumber + ": " + reason);
+                        }
+                    }
+                });
+            } catch (IOException e) {
+                throw new SQLException("Cannot read " + path + ": " + e.getMessage(), e);
+            } finally {
+                updateAvailableIds();
+            }
+        }, result -> {
+            loadAllRecords();
+            StringBuilder message = new StringBuilder();
+            message.append("Imported ").append(result.imported).append(" record(s).");
+            if (result.rejected > 0) {
+                message.append("\n").append(result.rejected).append(" row(s) were skipped:");
+                for (String rejection : rejections) {
+                    message.append("\n").append(rejection);
+                }
+                if (result.rejected > rejections.size()) {
+                    message.append("\n...");
+                }
+            }
+            updateStatus("Imported " + result.imported + " record(s) from " + path);
+            showMessage(message.toString(), "Import Complete", JOptionPane.INFORMATION_MESSAGE);
+        }, e -> {
+            loadAllRecords();
+            showMessage("Error importing records: " + e.getMessage(), "Import Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private void exportRecords() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export Listed Bills");
+        chooser.addChoosableFileFilter(new FileNameExtensionFilter("CSV (*.csv, *.csv.gz)", "csv", "gz"));
+        chooser.addChoosableFileFilter(new FileNameExtensionFilter("JSON Lines (*.jsonl, *.jsonl.gz)", "jsonl", "gz"));
+        chooser.setAcceptAllFileFilterUsed(false);
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        String path = chooser.getSelectedFile().getPath();
+        String baseName = path.toLowerCase().endsWith(".gz") ? path.substring(0, path.length() - 3) : path;
+        if (!baseName.toLowerCase().endsWith(".csv") && !baseName.toLowerCase().endsWith(".jsonl")) {
+            boolean json = chooser.getFileFilter().getDescription().startsWith("JSON");
+            // Before any .gz, so "bills.gz" becomes "bills.csv.gz" and stays compressed
+            path = baseName + (json ? ".jsonl" : ".csv") + path.substring(baseName.length());
+        }
+        String file = path;
+        BillExporter.Format format = BillExporter.Format.forFileName(file);
+        boolean gzip = file.toLowerCase().endsWith(".gz");
+        BillFilter filter = tableModel.getFilter();
+        updateStatus("Exporting to " + file + "...");
+
+        dbExecutor.read("export", reader -> {
+            try (OutputStream out = new FileOutputStream(file)) {
+                return new BillExporter(reader.getConnection()).export(filter, format, gzip, out,
+                        rows -> SwingUtilities.invokeLater(() -> updateStatus("Exporting... " + rows + " rows written")));
+            } catch (IOException e) {
+                throw new SQLException("Cannot write " + file + ": " + e.getMessage(), e);
+            }
+        }, rows -> updateStatus("Exported " + rows + " record(s) to " + file),
+                e -> showMessage("Error exporting records: " + e.getMessage(), "Export Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    private void recomputeTotals() {
+        JComboBox<String> selectBy = new JComboBox<>(new String[]{"Date range", "Current rate"});
+        JTextField criteriaField = new JTextField(18);
+        criteriaField.setToolTipText(BillFilter.DATE_HELP);
+        selectBy.addActionListener(e -> criteriaField.setToolTipText(
+                selectBy.getSelectedIndex() == 0 ? BillFilter.DATE_HELP : "Enter the rate stored on the bills to correct."));
+        JTextField newRateField = new JTextField(10);
+        newRateField.setToolTipText("Leave empty to use the rate schedule");
+
+        JPanel panel = new JPanel(new GridLayout(0, 2, 5, 5));
+        panel.add(selectBy);
+        panel.add(criteriaField);
+        panel.add(new JLabel("New rate (empty = schedule):"));
+        panel.add(newRateField);
+        if (JOptionPane.showConfirmDialog(this, panel, "Recompute Totals", JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        BillFilter filter;
+        Double newRate;
+        try {
+            String criteria = criteriaField.getText().trim();
+            if (criteria.isEmpty()) {
+                showMessage("Please enter the dates or rate of the bills to recompute.", "Input Required", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            filter = (selectBy.getSelectedIndex() == 0
+                    ? BillFilter.byDate(criteria)
+                    : BillFilter.where("bills.rate = ?", Double.parseDouble(criteria))).inAccount(currentAccountId);
+            String newRateText = newRateField.getText().trim();
+            newRate = newRateText.isEmpty() ? null : Double.parseDouble(newRateText);
+            if (newRate != null && newRate < 0) {
+                showMessage("Please enter positive numbers only.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+        } catch (NumberFormatException e) {
+            showMessage("Please enter valid numbers for the rates.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+            return;
+        } catch (IllegalArgumentException e) {
+            showMessage(e.getMessage(), "Invalid Input", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        AtomicBoolean cancelled = new AtomicBoolean();
+        JProgressBar progressBar = new JProgressBar(0, 1000);
+        progressBar.setStringPainted(true);
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> {
+            cancelled.set(true);
+            cancelButton.setEnabled(false);
+        });
+        JDialog progressDialog = new JDialog(this, "Recomputing Totals", false);
+        progressDialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        progressDialog.setLayout(new BorderLayout(5, 5));
+        progressDialog.add(progressBar, BorderLayout.CENTER);
+        progressDialog.add(cancelButton, BorderLayout.SOUTH);
+        progressDialog.setSize(320, 100);
+        progressDialog.setLocationRelativeTo(this);
+        progressDialog.setVisible(true);
+
+        dbExecutor.execute("recompute totals", () -> new TotalsRecomputer(dbConnection).recompute(filter, newRate,
+                (fraction, rows) -> SwingUtilities.invokeLater(() -> {
+                    progressBar.setValue((int) (fraction * 1000));
+                    progressBar.setString(rows + " bills updated");
+                }), cancelled::get), rows -> {
+            progressDialog.dispose();
+            reloadRecords();
+            updateStatus((cancelled.get() ? "Recompute cancelled after " : "Recomputed ") + rows + " bill total(s).");
+        }, e -> {
+            progressDialog.dispose();
+            reloadRecords();
+            showMessage("Error recomputing totals: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private void showEstimatedBilling() {
+        // The monthly rollup holds the whole history in one row per month
+        int accountId = currentAccountId;
+        dbExecutor.query("estimate", reader -> MonthlySummary.loadAll(reader.getConnection(), accountId), this::showEstimatedBilling,
+                e -> showMessage("Error fetching billing data: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    private void showEstimatedBilling(List<MonthlySummary> months) {
+        BillEstimate estimate = BillEstimate.of(months, rateSchedule, tariff);
+        if (estimate == null) {
+            showMessage("Not enough data to estimate billing. At least 1 reading is required.", "Estimation Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        MonthlySummary latest = estimate.latest;
+        String rateText;
+        if (BillPricer.SCHEDULED.equals(estimate.rateSource)) {
+            rateText = String.format("₱%.4f (scheduled)", estimate.rate);
+        } else if (BillPricer.TARIFF.equals(estimate.rateSource)) {
+            rateText = String.format("₱%.4f effective (tariff %s)", estimate.rate, tariff.getVersion());
+        } else {
+            rateText = String.format("₱%.4f (average for %s)", estimate.rate, latest.month);
+        }
+
+        String message = String.format(
+                "<html><b>Estimated Billing for %04d-%02d</b><br><br>" +
+                        "%s: %.4f kWh over %d reading(s)<br>" +
+                        "Projected kWh: %.4f<br>" +
+                        "Based on: %s<br>" +
+                        "Rate: %s<br><br>" +
+                        "<b>Estimated Bill: ₱%.4f</b></html>",
+                estimate.year, estimate.month, latest.month, latest.kwhSum, latest.readings, estimate.forecast.kwh,
+                estimate.forecast.method, rateText, estimate.bill
+        );
+
+        JOptionPane.showMessageDialog(this, message, "Estimated Billing", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    // Shows kWh, rate and total cells to four decimals with one shared formatter
+    static final class AmountRenderer extends DefaultTableCellRenderer {
+        private final DecimalFormat format = new DecimalFormat("0.0000");
+
+        AmountRenderer() {
+            setHorizontalAlignment(SwingConstants.RIGHT);
+            format.setRoundingMode(RoundingMode.HALF_UP);
+        }
+
+        @Override
+        protected void setValue(Object value) {
+            setText(value == null ? "" : format.format(((Number) value).doubleValue()));
+        }
+    }
+
+    // Loads the driver, opens the database and creates the schema on the
+    // database thread, so the window paints before any of it. Writes submitted
+    // meanwhile queue behind it. The reader connections open in the same task;
+    // reads wait until they are handed to the executor.
+    private void openDatabase() {
+        updateStatus("Opening database...");
+        dbExecutor.execute("open database", () -> {
+            try {
+                dbConnection = BillDatabase.open(dbUrl);
+            } catch (ClassNotFoundException e) {
+                throw new SQLException("SQLite JDBC driver not found. Please add sqlite-jdbc.jar to classpath.", e);
+            }
+            billRepository = new BillRepository(dbConnection);
+            tableModel.setRepository(billRepository);
+            return DatabaseExecutor.openReaders(dbUrl, READER_CONNECTIONS);
+        }, readers -> {
+            dbExecutor.startReaders(readers);
+            updateStatus("Database connected successfully.");
+        }, this::exitOnDatabaseError);
+    }
+
+    private void exitOnDatabaseError(SQLException e) {
+        if (e.getCause() instanceof ClassNotFoundException) {
+            showMessage(e.getMessage(), "Driver Error", JOptionPane.ERROR_MESSAGE);
+        } else {
+            showMessage("Database connection error: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+        }
+        System.exit(1);
+    }
+
+    private void loadTariff() {
+        Path file = Paths.get(TARIFF_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            tariff = TariffEngine.load(file);
+            rateField.setToolTipText("Leave empty to use tariff " + tariff.getVersion());
+        } catch (IOException | IllegalArgumentException e) {
+            showMessage("Cannot load " + TARIFF_FILE + ": " + e.getMessage(), "Tariff Error", JOptionPane.WARNING_MESSAGE);
+        }
+    }
+
+    private void updateAvailableIds() {
+        try {
+            idAllocator.load(dbConnection);
+        } catch (SQLException e) {
+            System.err.println("Error scanning for free IDs: " + e.getMessage());
+        }
+    }
+
+    private int getNextAvailableId() {
+        return idAllocator.nextId();
+    }
+
+    private void showMessage(String message, String title, int messageType) {
+        if (this.isDisplayable()) {
+            JOptionPane.showMessageDialog(this, message, title, messageType);
+        } else {
+            System.err.println(title + ": " + message);
+        }
+    }
+
+    private void updateStatus(String message) {
+        if (statusLabel != null) {
+            statusLabel.setText(message);
+        }
+    }
+
+    private void clearCalculation() {
+        totalLabel.setText("₱0.00");
+        totalLabel.setToolTipText(null);
+        saveButton.setEnabled(false);
+        isCalculated = false;
+        currentTotal = 0.0;
+    }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+        // Let queued writes finish before closing the connection, waiting off
+        // the EDT so the window goes at once, then exit as closing it always has
+        dbExecutor.shutdownInBackground(() -> {
+            if (billRepository != null) {
+                billRepository.close();
+            }
+            try {
+                if (dbConnection != null && !dbConnection.isClosed()) {
+                    dbConnection.close();
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }, () -> System.exit(0));
+    }
+
+    // Imports a CSV file ("-" for stdin) into an account without opening the
+    // window. Returns the process exit code.
+    private static int importHeadless(String dbUrl, int accountId, String path) {
+        TariffEngine tariff;
+        try {
+            tariff = loadTariffHeadless();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Tariff Error: cannot load " + TARIFF_FILE + ": " + e.getMessage());
+            return 1;
+        }
+
+        try (Connection connection = BillDatabase.open(dbUrl);
+             BufferedReader reader = "-".equals(path)
+                     ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                     : Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            if (Account.loadAll(connection).stream().noneMatch(account -> account.id == accountId)) {
+                System.err.println("Invalid Account: no account with ID " + accountId);
+                return 1;
+            }
+            IdAllocator idAllocator = new IdAllocator();
+            idAllocator.load(connection);
+            RateSchedule rateSchedule = new RateSchedule();
+            rateSchedule.load(connection);
+
+            BillPricer pricer = new BillPricer(rateSchedule, tariff);
+            BillImporter.Result result = new BillImporter(connection, accountId, idAllocator, pricer).importCsv(reader, new BillImporter.Listener() {
+                @Override
+                public void progress(long rowsRead, long rowsImported) {
+                    System.err.println("Imported " + rowsImported + " of " + rowsRead + " rows");
+                }
+
+                @Override
+                public void rejected(long lineNumber, String reason) {
+                    System.err.println("Line " + lineNumber + ": " + reason);
+                }
+            });
+            System.out.println("Imported " + result.imported + " record(s), skipped " + result.rejected + ".");
+            return result.rejected > 0 ? 2 : 0;
+        } catch (ClassNotFoundException e) {
+            System.err.println("Driver Error: SQLite JDBC driver not found. Please add sqlite-jdbc.jar to classpath.");
+        } catch (IOException e) {
+            System.err.println("Import Error: cannot read " + path + ": " + e.getMessage());
+        } catch (SQLException e) {
+            System.err.println("Database Error: " + e.getMessage());
+        }
+        return 1;
+    }
+
+    // Bills CSV readings from files ("-" for stdin) to stdout without opening
+    // the window, and with save also adds them to an account (see
+    // BatchBiller). Returns the process exit code.
+    private static int billHeadless(String dbUrl, int accountId, boolean save, List<String> sources) {
+        TariffEngine tariff;
+        try {
+            tariff = loadTariffHeadless();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Tariff Error: cannot load " + TARIFF_FILE + ": " + e.getMessage());
+            return 1;
+        }
+
+        try (Connection connection = BillDatabase.open(dbUrl)) {
+            RateSchedule rateSchedule = new RateSchedule();
+            rateSchedule.load(connection);
+            BatchBiller biller = new BatchBiller(new BillPricer(rateSchedule, tariff), Runtime.getRuntime().availableProcessors());
+            if (save) {
+                if (Account.loadAll(connection).stream().noneMatch(account -> account.id == accountId)) {
+                    System.err.println("Invalid Account: no account with ID " + accountId);
+                    return 1;
+                }
+                IdAllocator idAllocator = new IdAllocator();
+                idAllocator.load(connection);
+                biller.saveTo(connection, accountId, idAllocator);
+            }
+
+            long started = System.nanoTime();
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+            BatchBiller.Result result = biller.bill(sources, out, new BatchBiller.Listener() {
+                @Override
+                public void progress(long rowsRead, long rowsBilled) {
+                    System.err.println("Billed " + rowsBilled + " of " + rowsRead + " rows");
+                }
+
+                @Override
+                public void rejected(String source, long lineNumber, String reason) {
+                    System.err.println(source + " line " + lineNumber + ": " + reason);
+                }
+            });
+            System.err.println("Billed " + result.billed + " reading(s)" + (save ? " and saved them" : "")
+                    + ", skipped " + result.rejected + " (" + (System.nanoTime() - started) / 1_000_000 + " ms).");
+            return result.rejected > 0 ? 2 : 0;
+        } catch (ClassNotFoundException e) {
+            System.err.println("Driver Error: SQLite JDBC driver not found. Please add sqlite-jdbc.jar to classpath.");
+        } catch (IOException e) {
+            System.err.println("Billing Error: " + e.getMessage());
+        } catch (SQLException e) {
+            System.err.println("Database Error: " + e.getMessage());
+        }
+        return 1;
+    }
+
+    // The tariff in TARIFF_FILE, or null if there is none
+    private static TariffEngine loadTariffHeadless() throws IOException {
+        return Files.exists(Paths.get(TARIFF_FILE)) ? TariffEngine.load(Paths.get(TARIFF_FILE)) : null;
+    }
+
+    // Serves the HTTP/JSON API (see BillServer) on [host:]port until the
+    // process is stopped, then prints the database timings. Returns the process
+    // exit code if the server cannot start.
+    private static int serveHeadless(String dbUrl, int accountId, String address) {
+        InetSocketAddress socketAddress;
+        try {
+            int colon = address.lastIndexOf(':');
+            socketAddress = new InetSocketAddress(colon < 0 ? "127.0.0.1" : address.substring(0, colon),
+                    Integer.parseInt(address.substring(colon + 1)));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid Address: " + address + " (expected [host:]port)");
+            return 1;
+        }
+        TariffEngine tariff;
+        try {
+            tariff = loadTariffHeadless();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Tariff Error: cannot load " + TARIFF_FILE + ": " + e.getMessage());
+            return 1;
+        }
+
+        // Without TCP_NODELAY a small response can wait out the client's 40 ms
+        // delayed ACK; the JDK reads this once, when the first server is made
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        OperationMetrics metrics = new OperationMetrics();
+        BillServer server = new BillServer(dbUrl, accountId, metrics);
+        try {
+            server.start(socketAddress, Math.max(2, Runtime.getRuntime().availableProcessors()), tariff);
+        } catch (ClassNotFoundException e) {
+            System.err.println("Driver Error: SQLite JDBC driver not found. Please add sqlite-jdbc.jar to classpath.");
+            return 1;
+        } catch (IOException e) {
+            System.err.println("Server Error: cannot listen on " + address + ": " + e.getMessage());
+            return 1;
+        } catch (SQLException e) {
+            System.err.println("Database Error: " + e.getMessage());
+            return 1;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            for (OperationMetrics.Snapshot s : metrics.snapshot()) {
+                System.err.println(String.format("%s: %d call(s), %d error(s), p50 %.3f ms, p99 %.3f ms, max %.3f ms",
+                        s.name, s.count, s.errors, s.p50Millis, s.p99Millis, s.maxMillis));
+            }
+        }, "api shutdown"));
+        InetSocketAddress bound = server.getAddress();
+        System.err.println("Serving the API on http://" + bound.getHostString() + ":" + bound.getPort()
+                + "/api/ (account " + accountId + (tariff == null ? ", no tariff" : ", tariff " + tariff.getVersion())
+                + "). Stop with Ctrl+C.");
+        return 0;
+    }
+
+    // Exports bills matching an optional search, of one account or (accountId
+    // null) of all, to a file ("-" for stdout as CSV) without opening the
+    // window. Returns the process exit code.
+    private static int exportHeadless(String dbUrl, Integer accountId, String path, String searchType, String searchTerm) {
+        BillFilter filter;
+        try {
+            filter = searchType == null ? BillFilter.ALL : createSearchFilter(searchType, searchTerm);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid Search: " + e.getMessage());
+            return 1;
+        }
+        if (accountId != null) {
+            filter = filter.inAccount(accountId);
+        }
+
+        boolean toStdout = "-".equals(path);
+        try (Connection connection = BillDatabase.open(dbUrl);
+             OutputStream out = toStdout ? System.out : new FileOutputStream(path)) {
+            long rows = new BillExporter(connection).export(filter,
+                    toStdout ? BillExporter.Format.CSV : BillExporter.Format.forFileName(path),
+                    !toStdout && path.toLowerCase().endsWith(".gz"), out,
+                    written -> System.err.println("Exported " + written + " rows"));
+            if (!toStdout) {
+                System.out.println("Exported " + rows + " record(s) to " + path + ".");
+            }
+            return 0;
+        } catch (ClassNotFoundException e) {
+            System.err.println("Driver Error: SQLite JDBC driver not found. Please add sqlite-jdbc.jar to classpath.");
+        } catch (IOException e) {
+            System.err.println("Export Error: cannot write " + path + ": " + e.getMessage());
+        } catch (SQLException e) {
+            System.err.println("Database Error: " + e.getMessage());
+        }
+        return 1;
+    }
+
+    // Writes a new database file of synthetic bills (see BillGenerator)
+    // without opening the window. Returns the process exit code.
+    private static int generateHeadless(String path, String rowsText, String seedText, String gapText) {
+        int rows;
+        long seed;
+        double gapPercent;
+        try {
+            rows = Integer.parseInt(rowsText);
+            seed = seedText == null ? 42 : Long.parseLong(seedText);
+            gapPercent = gapText == null ? 5 : Double.parseDouble(gapText);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid Number: " + e.getMessage());
+            return 1;
+        }
+
+        try {
+            long started = System.nanoTime();
+            int lastId = new BillGenerator(seed, gapPercent / 100).generate("jdbc:sqlite:" + path, rows,
+                    written -> System.err.println("Generated " + written + " rows"));
+            System.out.println("Generated " + rows + " record(s) with IDs up to " + lastId + " in " + path + " ("
+                    + (System.nanoTime() - started) / 1_000_000_000 + " s).");
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid Option: " + e.getMessage());
+        } catch (ClassNotFoundException e) {
+            System.err.println("Driver Error: SQLite JDBC driver not found. Please add sqlite-jdbc.jar to classpath.");
+        } catch (SQLException e) {
+            System.err.println("Database Error: " + e.getMessage());
+        }
+        return 1;
+    }
+
+    // Prints every account's totals and next month's forecast as CSV without
+    // opening the window. Returns the process exit code.
+    private static int portfolioHeadless(String dbUrl) {
+        TariffEngine tariff;
+        try {
+            tariff = loadTariffHeadless();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Tariff Error: cannot load " + TARIFF_FILE + ": " + e.getMessage());
+            return 1;
+        }
+
+        try (Connection connection = BillDatabase.open(dbUrl)) {
+            long started = System.nanoTime();
+            RateSchedule rateSchedule = new RateSchedule();
+            rateSchedule.load(connection);
+            PortfolioReport report = PortfolioReport.build(connection, dbUrl, rateSchedule, tariff);
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            out.write("account_id,name,months,readings,kwh,total,last_month,forecast_kwh,forecast_total\n");
+            for (PortfolioReport.AccountTotals totals : report.accounts) {
+                out.write(totals.account.id + ",");
+                BillExporter.writeCsvField(out, totals.account.name);
+                out.write(String.format(",%d,%d,%.4f,%.4f,%s,%.4f,%.4f\n", totals.months, totals.readings,
+                        totals.kwh, totals.total, totals.lastMonth == null ? "" : totals.lastMonth,
+                        totals.forecastKwh, totals.forecastTotal));
+            }
+            out.flush();
+            System.err.println(String.format("%d account(s), %d reading(s), %.4f kWh, %.4f billed; "
+                            + "forecast %.4f kWh, %.4f (%d ms)", report.accounts.size(), report.readings,
+                    report.kwh, report.total, report.forecastKwh, report.forecastTotal,
+                    (System.nanoTime() - started) / 1_000_000));
+            return 0;
+        } catch (ClassNotFoundException e) {
+            System.err.println("Driver Error: SQLite JDBC driver not found. Please add sqlite-jdbc.jar to classpath.");
+        } catch (IOException e) {
+            System.err.println("Output Error: " + e.getMessage());
+        } catch (SQLException e) {
+            System.err.println("Database Error: " + e.getMessage());
+        }
+        return 1;
+    }
+
+    public static void main(String[] args) {
+        // Leading options: --db <file> and --account <id>
+        String dbUrl = DEFAULT_DB_URL;
+        Integer accountId = null;
+        int first = 0;
+        while (args.length - first >= 2 && ("--db".equals(args[first]) || "--account".equals(args[first]))) {
+            if ("--db".equals(args[first])) {
+                dbUrl = "jdbc:sqlite:" + args[first + 1];
+            } else {
+                try {
+                    accountId = Integer.parseInt(args[first + 1]);
+                } catch (NumberFormatException e) {
+                    System.err.println("Invalid Account: " + args[first + 1]);
+                    System.exit(1);
+                }
+            }
+            first += 2;
+        }
+        args = Arrays.copyOfRange(args, first, args.length);
+        int account = accountId == null ? BillDatabase.DEFAULT_ACCOUNT : accountId;
+
+        if (args.length == 2 && "--import".equals(args[0])) {
+            System.exit(importHeadless(dbUrl, account, args[1]));
+        }
+        if ((args.length == 2 || args.length == 4) && "--export".equals(args[0])) {
+            System.exit(args.length == 4 ? exportHeadless(dbUrl, accountId, args[1], args[2], args[3])
+                    : exportHeadless(dbUrl, accountId, args[1], null, null));
+        }
+        if (args.length >= 2 && "--bill".equals(args[0])) {
+            boolean save = "--save".equals(args[1]);
+            List<String> sources = Arrays.asList(args).subList(save ? 2 : 1, args.length);
+            if (!sources.isEmpty()) {
+                System.exit(billHeadless(dbUrl, account, save, sources));
+            }
+        }
+        if ((args.length == 1 || args.length == 2) && "--serve".equals(args[0])) {
+            // The server's threads keep the JVM running once main returns
+            int status = serveHeadless(dbUrl, account, args.length == 2 ? args[1] : "127.0.0.1:8080");
+            if (status != 0) {
+                System.exit(status);
+            }
+            return;
+        }
+        if (args.length == 1 && "--portfolio".equals(args[0])) {
+            System.exit(portfolioHeadless(dbUrl));
+        }
+        if (args.length >= 3 && args.length <= 5 && "--generate".equals(args[0])) {
+            System.exit(generateHeadless(args[1], args[2], args.length > 3 ? args[3] : null, args.length > 4 ? args[4] : null));
+        }
+
+        if (args.length == 2 && "--cds-training".equals(args[0])) {
+            // Run by the build; see StartupTraining
+            try {
+                StartupTraining.run(args[1]);
+                System.exit(0);
+            } catch (Exception e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+        }
+
+        String startUrl = dbUrl;
+        SwingUtilities.invokeLater(() -> {
+            try {
+                new MeralcoBill(startUrl, account).setVisible(true);
+            } catch (Exception e) {
+                JOptionPane.showMessageDialog(null,
+                        "Error starting application: " + e.getMessage(),
+                        "Startup Error",
+                        JOptionPane.ERROR_MESSAGE);
+            }
+        });
+    }
+}
\ No newline at end of file
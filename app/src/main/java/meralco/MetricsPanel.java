@@ -0,0 +1,66 @@
+package meralco;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+
+// Live view of the OperationMetrics, refreshed every second while shown.
+class MetricsPanel extends JPanel {
+    private static final int REFRESH_MILLIS = 1000;
+
+    private final OperationMetrics metrics;
+    private final DefaultTableModel tableModel;
+    private final Timer refreshTimer;
+
+    MetricsPanel(OperationMetrics metrics) {
+        super(new BorderLayout(5, 5));
+        this.metrics = metrics;
+
+        tableModel = new DefaultTableModel(new String[]{"Phase", "Operation", "Count", "Errors",
+                "p50 (ms)", "p99 (ms)", "Max (ms)", "Avg Rows"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable table = new JTable(tableModel);
+        table.getTableHeader().setReorderingAllowed(false);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(0, 120));
+
+        JButton resetButton = new JButton("Reset");
+        resetButton.setToolTipText("Clear the timings collected so far");
+        resetButton.addActionListener(e -> {
+            metrics.reset();
+            refresh();
+        });
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        buttonPanel.add(resetButton);
+
+        setBorder(BorderFactory.createTitledBorder("Operation timings"));
+        add(scrollPane, BorderLayout.CENTER);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        refreshTimer = new Timer(REFRESH_MILLIS, e -> refresh());
+    }
+
+    @Override
+    public void setVisible(boolean visible) {
+        super.setVisible(visible);
+        if (visible) {
+            refresh();
+            refreshTimer.start();
+        } else {
+            refreshTimer.stop();
+        }
+    }
+
+    private void refresh() {
+        tableModel.setRowCount(0);
+        for (OperationMetrics.Snapshot s : metrics.snapshot()) {
+            tableModel.addRow(new Object[]{s.phase, s.name, s.count, s.errors,
+                    String.format("%.3f", s.p50Millis), String.format("%.3f", s.p99Millis),
+                    String.format("%.3f", s.maxMillis), String.format("%.1f", s.averageRows())});
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package meralco;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// One account's month of the monthly_summary rollup (see BillDatabase).
+class MonthlySummary {
+    private static final String COLUMNS = "account_id, month, reading_count, kwh_sum, total_sum, rate_sum, " +
+            "kwh_min, kwh_max, last_timestamp, last_kwh";
+
+    final int accountId;
+    final String month;
+    final int readings;
+    final double kwhSum;
+    final double totalSum;
+    final double rateSum;
+    final double kwhMin;
+    final double kwhMax;
+    final String lastTimestamp;
+    final double lastKwh;
+
+    MonthlySummary(int accountId, String month, int readings, double kwhSum, double totalSum, double rateSum,
+                   double kwhMin, double kwhMax, String lastTimestamp, double lastKwh) {
+        this.accountId = accountId;
+        this.month = month;
+        this.readings = readings;
+        this.kwhSum = kwhSum;
+        this.totalSum = totalSum;
+        this.rateSum = rateSum;
+        this.kwhMin = kwhMin;
+        this.kwhMax = kwhMax;
+        this.lastTimestamp = lastTimestamp;
+        this.lastKwh = lastKwh;
+    }
+
+    double averageRate() {
+        return rateSum / readings;
+    }
+
+    // The account's months in ascending order; one row per month, however many bills.
+    static List<MonthlySummary> loadAll(Connection connection, int accountId) throws SQLException {
+        return loadAccounts(connection, accountId, accountId);
+    }
+
+    // Months of every account with an id from first to last, by account and
+    // then month; a range of the primary key.
+    static List<MonthlySummary> loadAccounts(Connection connection, int first, int last) throws SQLException {
+        List<MonthlySummary> months = new ArrayList<>();
+        String sql = "SELECT " + COLUMNS + " FROM monthly_summary WHERE account_id BETWEEN ? AND ? " +
+                "ORDER BY account_id, month";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, first);
+            pstmt.setInt(2, last);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    months.add(new MonthlySummary(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getDouble(4),
+                            rs.getDouble(5), rs.getDouble(6), rs.getDouble(7), rs.getDouble(8), rs.getString(9),
+                            rs.getDouble(10)));
+                }
+            }
+        }
+        return months;
+    }
+}
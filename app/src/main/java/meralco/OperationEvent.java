@@ -0,0 +1,56 @@
+package meralco;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Flight Recorder event for one timed operation (see OperationMetrics). Only
+// loaded when the JVM has JFR. Record with e.g.
+//   java -XX:StartFlightRecording=filename=bills.jfr -jar meralco-bill-calculator.jar
+// and look for "Operation" under "Meralco Bill" in JDK Mission Control, or run
+// `jfr print --events meralco.Operation bills.jfr`.
+@Name("meralco.Operation")
+@Label("Operation")
+@Category("Meralco Bill")
+@Description("A database task, table update or table paint")
+@StackTrace(false)
+class OperationEvent extends Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Failed")
+    boolean failed;
+
+    // Created by OperationMetrics by name; the rest of the app never refers to
+    // jdk.jfr, so it compiles against the Java 8 API (see app/pom.xml)
+    static final class Recorder implements OperationMetrics.EventRecorder {
+        @Override
+        public Object start() {
+            OperationEvent event = new OperationEvent();
+            event.begin();
+            return event;
+        }
+
+        @Override
+        public void finish(Object started, String phase, String operation, long rows, boolean failed) {
+            OperationEvent event = (OperationEvent) started;
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = phase;
+                event.operation = operation;
+                event.rows = rows;
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+}
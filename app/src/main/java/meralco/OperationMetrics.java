@@ -0,0 +1,193 @@
+package meralco;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency and row counts per operation, cheap enough to leave on all the time.
+// Each operation is timed in one phase: DATABASE for the work on the database
+// thread, UPDATE for handing the result to the table on the EDT and PAINT for
+// drawing it. Latencies go into a log-scale histogram (four buckets per
+// doubling, so percentiles are within 25%), and every timing is also emitted
+// as a "meralco.Operation" Flight Recorder event when a recording is running.
+// Safe to use from any thread.
+class OperationMetrics {
+    static final String DATABASE = "Database";
+    static final String UPDATE = "Update";
+    static final String PAINT = "Paint";
+
+    // Results that know how many rows they hold, for the row counts
+    interface RowCounted {
+        long rowCount();
+    }
+
+    private static final int BUCKETS = 160;
+    // Null when the JVM has no Flight Recorder
+    private static final EventRecorder JFR = jfrRecorder();
+
+    // Emits Flight Recorder events; implemented by OperationEvent.Recorder,
+    // which is loaded by name so this class compiles and runs without jdk.jfr
+    interface EventRecorder {
+        Object start();
+
+        void finish(Object event, String phase, String name, long rows, boolean failed);
+    }
+
+    private final ConcurrentHashMap<String, Stats> stats = new ConcurrentHashMap<>();
+
+    // A running timing; stop() records it.
+    final class Timer {
+        private final String phase;
+        private final String name;
+        private final long start = System.nanoTime();
+        // An OperationEvent, typed loosely so JVMs without JFR never load it
+        private final Object event;
+
+        private Timer(String phase, String name) {
+            this.phase = phase;
+            this.name = name;
+            this.event = JFR == null ? null : JFR.start();
+        }
+
+        void stop(long rows, boolean failed) {
+            long nanos = System.nanoTime() - start;
+            if (event != null) {
+                JFR.finish(event, phase, name, rows, failed);
+            }
+            stats.computeIfAbsent(phase + ": " + name, key -> new Stats(phase, name)).add(nanos, rows, failed);
+        }
+    }
+
+    static final class Snapshot {
+        final String phase;
+        final String name;
+        final long count;
+        final long errors;
+        final long rows;
+        final double p50Millis;
+        final double p99Millis;
+        final double maxMillis;
+
+        private Snapshot(Stats stats) {
+            phase = stats.phase;
+            name = stats.name;
+            long[] histogram = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram[i] = stats.histogram.get(i);
+                total += histogram[i];
+            }
+            count = total;
+            errors = stats.errors.sum();
+            rows = stats.rows.sum();
+            maxMillis = stats.maxNanos.get() / 1_000_000.0;
+            // A bucket's upper bound can overshoot the slowest timing in it
+            p50Millis = Math.min(maxMillis, percentile(histogram, total, 0.50) / 1000.0);
+            p99Millis = Math.min(maxMillis, percentile(histogram, total, 0.99) / 1000.0);
+        }
+
+        double averageRows() {
+            return count == 0 ? 0 : (double) rows / count;
+        }
+    }
+
+    private static final class Stats {
+        final String phase;
+        final String name;
+        final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+        final LongAdder errors = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        Stats(String phase, String name) {
+            this.phase = phase;
+            this.name = name;
+        }
+
+        void add(long nanos, long rowCount, boolean failed) {
+            histogram.incrementAndGet(bucket(nanos / 1000));
+            rows.add(rowCount);
+            if (failed) {
+                errors.increment();
+            }
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    Timer start(String phase, String name) {
+        return new Timer(phase, name);
+    }
+
+    // Row count of a task result, or 0 if it doesn't have one
+    static long rowsOf(Object result) {
+        if (result instanceof RowCounted) {
+            return ((RowCounted) result).rowCount();
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        return 0;
+    }
+
+    // Every operation timed so far, by phase and name
+    List<Snapshot> snapshot() {
+        List<Snapshot> snapshots = new ArrayList<>();
+        for (Stats s : stats.values()) {
+            snapshots.add(new Snapshot(s));
+        }
+        snapshots.sort((a, b) -> a.phase.equals(b.phase) ? a.name.compareTo(b.name) : a.phase.compareTo(b.phase));
+        return snapshots;
+    }
+
+    void reset() {
+        stats.clear();
+    }
+
+    // Buckets 0-3 hold 0-3 µs; after that each doubling is split in four
+    static int bucket(long micros) {
+        if (micros < 4) {
+            return (int) Math.max(0, micros);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - 2)) & 3;
+        return Math.min(BUCKETS - 1, 4 * (exponent - 1) + sub);
+    }
+
+    // Highest latency in µs that falls into a bucket
+    static long upperBound(int bucket) {
+        if (bucket < 4) {
+            return bucket;
+        }
+        int exponent = bucket / 4 + 1;
+        return ((5L + bucket % 4) << (exponent - 2)) - 1;
+    }
+
+    static long percentile(long[] histogram, long total, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(histogram.length - 1);
+    }
+
+    // Flight Recorder ships with JDK 11+ and 8u262+
+    private static EventRecorder jfrRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (EventRecorder) Class.forName("meralco.OperationEvent$Recorder").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package meralco;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+
+// Every account's totals and next-month forecast (see PortfolioReport).
+class PortfolioDialog extends JDialog {
+
+    PortfolioDialog(Frame owner, PortfolioReport report) {
+        super(owner, "Portfolio", true);
+
+        DefaultTableModel tableModel = new DefaultTableModel(new String[]{"ID", "Account", "Months", "Readings",
+                "kWh Used", "Total (₱)", "Last Month", "Forecast kWh", "Forecast Bill (₱)"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        for (PortfolioReport.AccountTotals totals : report.accounts) {
+            tableModel.addRow(new Object[]{
+                    totals.account.id,
+                    totals.account.name,
+                    totals.months,
+                    totals.readings,
+                    String.format("%.2f", totals.kwh),
+                    String.format("%.2f", totals.total),
+                    totals.lastMonth == null ? "" : totals.lastMonth,
+                    String.format("%.2f", totals.forecastKwh),
+                    String.format("%.2f", totals.forecastTotal)
+            });
+        }
+        JTable table = new JTable(tableModel);
+        table.getTableHeader().setReorderingAllowed(false);
+
+        JLabel overviewLabel = new JLabel(String.format("%d accounts | %d readings | %.2f kWh | ₱%.2f total | " +
+                        "next month: %.2f kWh, ₱%.2f", report.accounts.size(), report.readings, report.kwh,
+                report.total, report.forecastKwh, report.forecastTotal));
+        overviewLabel.setBorder(BorderFactory.createEmptyBorder(5, 5, 0, 5));
+
+        setLayout(new BorderLayout(5, 5));
+        add(overviewLabel, BorderLayout.NORTH);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        setSize(900, 420);
+        setLocationRelativeTo(owner);
+    }
+}
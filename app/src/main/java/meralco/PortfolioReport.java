@@ -0,0 +1,191 @@
+package meralco;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Totals and next-month forecasts across every account. The accounts are split
+// in halves on a fork/join pool until each piece is small enough; a piece
+// reads its range of accounts from the monthly_summary rollup over its own
+// read-only connection (a SQLite connection can't be shared between threads),
+// and the partial reports are merged back up the tree in account order.
+//
+// Forecasts are priced through BillEstimate, like Estimated Billing: the
+// scheduled rate, then the tariff, then the account's latest average rate.
+final class PortfolioReport implements OperationMetrics.RowCounted {
+
+    static final class AccountTotals {
+        final Account account;
+        final int months;
+        final long readings;
+        final double kwh;
+        final double total;
+        // "YYYY-MM" of the latest bill, or null for an account without bills
+        final String lastMonth;
+        final double forecastKwh;
+        final double forecastTotal;
+
+        AccountTotals(Account account, int months, long readings, double kwh, double total,
+                      String lastMonth, double forecastKwh, double forecastTotal) {
+            this.account = account;
+            this.months = months;
+            this.readings = readings;
+            this.kwh = kwh;
+            this.total = total;
+            this.lastMonth = lastMonth;
+            this.forecastKwh = forecastKwh;
+            this.forecastTotal = forecastTotal;
+        }
+    }
+
+    // Fewer accounts than this are read by one task
+    private static final int MIN_SPLIT = 16;
+
+    final List<AccountTotals> accounts;
+    final long readings;
+    final double kwh;
+    final double total;
+    final double forecastKwh;
+    final double forecastTotal;
+
+    private PortfolioReport(List<AccountTotals> accounts) {
+        this.accounts = accounts;
+        long readingSum = 0;
+        double kwhSum = 0;
+        double totalSum = 0;
+        double forecastKwhSum = 0;
+        double forecastTotalSum = 0;
+        for (AccountTotals totals : accounts) {
+            readingSum += totals.readings;
+            kwhSum += totals.kwh;
+            totalSum += totals.total;
+            forecastKwhSum += totals.forecastKwh;
+            forecastTotalSum += totals.forecastTotal;
+        }
+        readings = readingSum;
+        kwh = kwhSum;
+        total = totalSum;
+        forecastKwh = forecastKwhSum;
+        forecastTotal = forecastTotalSum;
+    }
+
+    @Override
+    public long rowCount() {
+        return accounts.size();
+    }
+
+    // Reports on every account of the database at url, reading the account
+    // list over connection (from the caller's thread) and the rollup in
+    // parallel on the common fork/join pool. The tariff may be null.
+    static PortfolioReport build(Connection connection, String url, RateSchedule rateSchedule, TariffEngine tariff)
+            throws SQLException {
+        List<Account> accounts = Account.loadAll(connection);
+        // A few pieces per worker evens out accounts with more history
+        int pieces = 4 * ForkJoinPool.commonPool().getParallelism();
+        int leafSize = Math.max(MIN_SPLIT, (accounts.size() + pieces - 1) / pieces);
+        try {
+            return new PortfolioReport(ForkJoinPool.commonPool().invoke(
+                    new Part(url, rateSchedule, tariff, accounts, 0, accounts.size(), leafSize)));
+        } catch (PartFailed e) {
+            throw e.cause;
+        }
+    }
+
+    // Carries a reader's SQLException out of the pool
+    private static final class PartFailed extends RuntimeException {
+        final SQLException cause;
+
+        PartFailed(SQLException cause) {
+            super(cause);
+            this.cause = cause;
+        }
+    }
+
+    private static final class Part extends RecursiveTask<List<AccountTotals>> {
+        private final String url;
+        private final RateSchedule rateSchedule;
+        private final TariffEngine tariff;
+        private final List<Account> accounts;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+
+        Part(String url, RateSchedule rateSchedule, TariffEngine tariff,
+             List<Account> accounts, int from, int to, int leafSize) {
+            this.url = url;
+            this.rateSchedule = rateSchedule;
+            this.tariff = tariff;
+            this.accounts = accounts;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected List<AccountTotals> compute() {
+            if (to - from <= leafSize) {
+                try {
+                    return read();
+                } catch (SQLException e) {
+                    throw new PartFailed(e);
+                }
+            }
+            int middle = (from + to) >>> 1;
+            Part left = new Part(url, rateSchedule, tariff, accounts, from, middle, leafSize);
+            Part right = new Part(url, rateSchedule, tariff, accounts, middle, to, leafSize);
+            left.fork();
+            List<AccountTotals> merged = new ArrayList<>(to - from);
+            List<AccountTotals> rightTotals = right.compute();
+            merged.addAll(left.join());
+            merged.addAll(rightTotals);
+            return merged;
+        }
+
+        private List<AccountTotals> read() throws SQLException {
+            List<AccountTotals> totals = new ArrayList<>(to - from);
+            if (from == to) {
+                return totals;
+            }
+            List<MonthlySummary> months;
+            try (Connection connection = BillDatabase.openReadOnly(url)) {
+                months = MonthlySummary.loadAccounts(connection, accounts.get(from).id, accounts.get(to - 1).id);
+            }
+            // Months come by account and then month, like the accounts
+            int next = 0;
+            for (int i = from; i < to; i++) {
+                Account account = accounts.get(i);
+                // Skip months of account ids with no account row
+                while (next < months.size() && months.get(next).accountId < account.id) {
+                    next++;
+                }
+                int start = next;
+                while (next < months.size() && months.get(next).accountId == account.id) {
+                    next++;
+                }
+                totals.add(summarize(account, months.subList(start, next), rateSchedule, tariff));
+            }
+            return totals;
+        }
+    }
+
+    private static AccountTotals summarize(Account account, List<MonthlySummary> months,
+                                           RateSchedule rateSchedule, TariffEngine tariff) {
+        BillEstimate estimate = BillEstimate.of(months, rateSchedule, tariff);
+        if (estimate == null) {
+            return new AccountTotals(account, 0, 0, 0, 0, null, 0, 0);
+        }
+        long readings = 0;
+        double kwh = 0;
+        double total = 0;
+        for (MonthlySummary summary : months) {
+            readings += summary.readings;
+            kwh += summary.kwhSum;
+            total += summary.totalSum;
+        }
+        return new AccountTotals(account, months.size(), readings, kwh, total, estimate.latest.month,
+                estimate.forecast.kwh, estimate.bill);
+    }
+}
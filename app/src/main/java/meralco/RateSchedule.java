@@ -0,0 +1,60 @@
+package meralco;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Published rates keyed by the date they take effect, cached in memory so a
+// reading's rate is a floor lookup instead of a query. The cache is an
+// immutable snapshot replaced after every write, so it can be read from any
+// thread; writes must run on the database thread.
+class RateSchedule {
+    private volatile NavigableMap<LocalDate, Double> rates = Collections.emptyNavigableMap();
+
+    void load(Connection connection) throws SQLException {
+        NavigableMap<LocalDate, Double> loaded = new TreeMap<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT effective_date, rate FROM rate_schedule")) {
+            while (rs.next()) {
+                loaded.put(LocalDate.parse(rs.getString(1)), rs.getDouble(2));
+            }
+        }
+        rates = Collections.unmodifiableNavigableMap(loaded);
+    }
+
+    // Rate in effect on a date, or null if the schedule starts after it.
+    Double rateOn(LocalDate date) {
+        Map.Entry<LocalDate, Double> entry = rates.floorEntry(date);
+        return entry == null ? null : entry.getValue();
+    }
+
+    // Same as rateOn for a "YYYY-MM-DD" date, ignoring any time after it.
+    Double rateOn(String date) {
+        return rateOn(LocalDate.parse(date.length() > 10 ? date.substring(0, 10) : date));
+    }
+
+    NavigableMap<LocalDate, Double> getRates() {
+        return rates;
+    }
+
+    void put(Connection connection, LocalDate effectiveDate, double rate) throws SQLException {
+        String sql = "INSERT OR REPLACE INTO rate_schedule (effective_date, rate) VALUES (?, ?)";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, effectiveDate.toString());
+            pstmt.setDouble(2, rate);
+            pstmt.executeUpdate();
+        }
+        load(connection);
+    }
+
+    void remove(Connection connection, LocalDate effectiveDate) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement("DELETE FROM rate_schedule WHERE effective_date = ?")) {
+            pstmt.setString(1, effectiveDate.toString());
+            pstmt.executeUpdate();
+        }
+        load(connection);
+    }
+}
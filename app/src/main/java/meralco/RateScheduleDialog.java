@@ -0,0 +1,110 @@
+package meralco;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+// Lists the rate schedule and lets the user add, change or remove entries.
+class RateScheduleDialog extends JDialog {
+    private final DatabaseExecutor dbExecutor;
+    private final Connection connection;
+    private final RateSchedule rateSchedule;
+
+    private final DefaultTableModel tableModel;
+    private final JTable table;
+    private final JTextField dateField = new JTextField(10);
+    private final JTextField rateField = new JTextField(8);
+
+    RateScheduleDialog(Frame owner, DatabaseExecutor dbExecutor, Connection connection, RateSchedule rateSchedule) {
+        super(owner, "Rate Schedule", true);
+        this.dbExecutor = dbExecutor;
+        this.connection = connection;
+        this.rateSchedule = rateSchedule;
+
+        tableModel = new DefaultTableModel(new String[]{"Effective Date", "Rate (₱)"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        table = new JTable(tableModel);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getSelectionModel().addListSelectionListener(e -> {
+            int row = table.getSelectedRow();
+            if (!e.getValueIsAdjusting() && row >= 0) {
+                dateField.setText(tableModel.getValueAt(row, 0).toString());
+                rateField.setText(tableModel.getValueAt(row, 1).toString());
+            }
+        });
+
+        JPanel editPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 5));
+        editPanel.add(new JLabel("Effective (YYYY-MM-DD):"));
+        editPanel.add(dateField);
+        editPanel.add(new JLabel("Rate:"));
+        editPanel.add(rateField);
+        JButton saveButton = new JButton("Save Rate");
+        JButton removeButton = new JButton("Remove");
+        editPanel.add(saveButton);
+        editPanel.add(removeButton);
+        saveButton.addActionListener(e -> saveRate());
+        removeButton.addActionListener(e -> removeRate());
+
+        setLayout(new BorderLayout(5, 5));
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        add(editPanel, BorderLayout.SOUTH);
+        setSize(560, 360);
+        setLocationRelativeTo(owner);
+        refreshTable();
+    }
+
+    private void refreshTable() {
+        tableModel.setRowCount(0);
+        for (Map.Entry<LocalDate, Double> entry : rateSchedule.getRates().descendingMap().entrySet()) {
+            tableModel.addRow(new Object[]{entry.getKey().toString(), String.format("%.4f", entry.getValue())});
+        }
+    }
+
+    private void saveRate() {
+        LocalDate date;
+        double rate;
+        try {
+            date = LocalDate.parse(dateField.getText().trim());
+            rate = Double.parseDouble(rateField.getText().trim());
+        } catch (DateTimeParseException | NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Please enter a YYYY-MM-DD date and a numeric rate.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (rate < 0) {
+            JOptionPane.showMessageDialog(this, "Please enter a positive rate.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        dbExecutor.execute("save rate", () -> {
+            rateSchedule.put(connection, date, rate);
+            return null;
+        }, ignored -> refreshTable(), this::showError);
+    }
+
+    private void removeRate() {
+        LocalDate date;
+        try {
+            date = LocalDate.parse(dateField.getText().trim());
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this, "Please select or enter the effective date to remove.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        dbExecutor.execute("remove rate", () -> {
+            rateSchedule.remove(connection, date);
+            return null;
+        }, ignored -> refreshTable(), this::showError);
+    }
+
+    private void showError(Exception e) {
+        JOptionPane.showMessageDialog(this, "Error updating rate schedule: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+    }
+}
@@ -0,0 +1,112 @@
+package meralco;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// One meter reading from an import file, a batch file or an API request,
+// checked and priced with the rules of Calculate (see BillPricer), so every
+// way in accepts the same readings. A reading that breaks them throws
+// IllegalArgumentException saying why.
+final class Reading {
+    static final Pattern TIMESTAMP_PATTERN =
+            Pattern.compile(MeralcoBill.DATE_PATTERN + "( \\d{2}:\\d{2}:\\d{2})?");
+
+    // 0 if not given, for the next free ID
+    final int id;
+    final String timestamp;
+    final double kwh;
+    final double rate;
+    final double total;
+    final String memo;
+
+    private Reading(int id, String timestamp, double kwh, BillPricer.Price price, String memo) {
+        this.id = id;
+        this.timestamp = timestamp;
+        this.kwh = kwh;
+        this.rate = price.rate;
+        this.total = price.total;
+        this.memo = memo;
+    }
+
+    // A CSV record in the columns id, date, kwh, rate, memo, total. The id and
+    // rate may be blank, memo and total left off; the total is recalculated,
+    // so BillExporter output can be read back. A bare date is taken as midnight.
+    static Reading parse(List<String> fields, BillPricer pricer) {
+        if (fields.size() < 4 || fields.size() > 6) {
+            throw new IllegalArgumentException(
+                    "expected 4 to 6 columns (id, date, kwh, rate, memo, total) but found " + fields.size());
+        }
+
+        String idText = fields.get(0).trim();
+        int id = 0;
+        if (!idText.isEmpty()) {
+            try {
+                id = Integer.parseInt(idText);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("ID must be a whole number");
+            }
+            if (id <= 0) {
+                throw new IllegalArgumentException("ID must be a positive number");
+            }
+        }
+
+        double kwh;
+        Double rate;
+        try {
+            kwh = Double.parseDouble(fields.get(2).trim());
+            String rateText = fields.get(3).trim();
+            rate = rateText.isEmpty() ? null : Double.parseDouble(rateText);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("kWh and rate must be numbers");
+        }
+        return of(id, fields.get(1).trim(), kwh, rate, fields.size() >= 5 ? fields.get(4) : "", "00:00:00", pricer);
+    }
+
+    // A reading with id 0 for the next free ID and rate null to price it as
+    // described in BillPricer. A bare date gets timeOfDay (HH:MM:SS).
+    static Reading of(int id, String date, double kwh, Double rate, String memo, String timeOfDay, BillPricer pricer) {
+        if (id < 0) {
+            throw new IllegalArgumentException("ID must be a positive number");
+        }
+        if (date == null || !TIMESTAMP_PATTERN.matcher(date).matches()) {
+            throw new IllegalArgumentException("date must be YYYY-MM-DD or YYYY-MM-DD HH:MM:SS");
+        }
+        try {
+            LocalDate.parse(date.substring(0, 10));
+            if (date.length() > 10) {
+                LocalTime.parse(date.substring(11));
+            }
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("date " + date + " does not exist");
+        }
+        BillPricer.Price price = price(kwh, rate, date, pricer);
+        return new Reading(id, date.length() == 10 ? date + " " + timeOfDay : date, kwh, price,
+                memo == null ? "" : memo.trim());
+    }
+
+    // The price of kwh as Calculate works it out. The date, already matched
+    // against TIMESTAMP_PATTERN, may be null when there is none.
+    static BillPricer.Price price(double kwh, Double rate, String date, BillPricer pricer) {
+        // NaN would be stored as NULL and Infinity written out as invalid JSON
+        if (!Double.isFinite(kwh) || (rate != null && !Double.isFinite(rate))) {
+            throw new IllegalArgumentException("kWh and rate must be finite numbers");
+        }
+        if (kwh < 0 || (rate != null && rate < 0)) {
+            throw new IllegalArgumentException("kWh and rate must not be negative");
+        }
+        BillPricer.Price price;
+        try {
+            price = pricer.price(kwh, rate, date);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("date " + date + " does not exist");
+        }
+        if (price == null) {
+            throw new IllegalArgumentException("no rate given, none scheduled"
+                    + (date == null ? "" : " for " + date.substring(0, 10)) + " and no tariff loaded");
+        }
+        return price;
+    }
+}
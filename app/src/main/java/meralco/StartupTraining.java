@@ -0,0 +1,150 @@
+package meralco;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Walks the startup path once without a window: a small generated database is
+// opened, read through the executor and its readers, and the kinds of
+// components the window is built from are laid out and painted off screen.
+// The build runs it (--cds-training) under -XX:ArchiveClassesAtExit, so the
+// classes it loads, the app's and sqlite-jdbc's included, go into the class
+// data sharing archive that later starts read from (see app/pom.xml).
+final class StartupTraining {
+    private static final int ROWS = 2_000;
+
+    private StartupTraining() {
+    }
+
+    static void run(String path) throws Exception {
+        Path file = Paths.get(path);
+        deleteDatabase(file);
+        String url = "jdbc:sqlite:" + path;
+        new BillGenerator(42, 0.05).generate(url, ROWS, null);
+
+        OperationMetrics metrics = new OperationMetrics();
+        DatabaseExecutor dbExecutor = new DatabaseExecutor(metrics);
+        Connection connection = BillDatabase.open(url);
+        BillRepository repository = new BillRepository(connection);
+        IdAllocator idAllocator = new IdAllocator();
+        RateSchedule rateSchedule = new RateSchedule();
+        CountDownLatch loaded = new CountDownLatch(3);
+        AtomicReference<SQLException> failure = new AtomicReference<>();
+        JPanel[] window = new JPanel[1];
+
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+            } catch (Exception e) {
+                // Use default look and feel
+            }
+            BillTableModel tableModel = new BillTableModel(dbExecutor, metrics);
+            window[0] = createWindow(tableModel, metrics);
+            dbExecutor.execute("open database", () -> {
+                tableModel.setRepository(repository);
+                idAllocator.load(connection);
+                rateSchedule.load(connection);
+                return DatabaseExecutor.openReaders(url, 1);
+            }, dbExecutor::startReaders, e -> fail(failure, loaded, e));
+            tableModel.setFirstPageQuery(BillFilter.ALL.inAccount(BillDatabase.DEFAULT_ACCOUNT), BillOrder.NEWEST_FIRST,
+                    count -> loaded.countDown(), e -> fail(failure, loaded, e));
+            dbExecutor.query("accounts", reader -> Account.loadAll(reader.getConnection()),
+                    accounts -> loaded.countDown(), e -> fail(failure, loaded, e));
+            dbExecutor.read("summary", reader -> MonthlySummary.loadAll(reader.getConnection(), BillDatabase.DEFAULT_ACCOUNT),
+                    months -> loaded.countDown(), e -> fail(failure, loaded, e));
+        });
+        try {
+            if (!loaded.await(1, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("Training reads did not finish");
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            SwingUtilities.invokeAndWait(() -> paint(window[0]));
+        } finally {
+            dbExecutor.shutdown(() -> {
+                repository.close();
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    System.err.println("Error closing database: " + e.getMessage());
+                }
+            });
+            deleteDatabase(file);
+        }
+    }
+
+    private static void fail(AtomicReference<SQLException> failure, CountDownLatch loaded, SQLException e) {
+        failure.compareAndSet(null, e);
+        while (loaded.getCount() > 0) {
+            loaded.countDown();
+        }
+    }
+
+    // The window's content without the frame, which needs a display
+    private static JPanel createWindow(BillTableModel tableModel, OperationMetrics metrics) {
+        Font labelFont = new Font("Arial", Font.BOLD, 14);
+        JPanel inputPanel = new JPanel(new GridBagLayout());
+        inputPanel.setBorder(BorderFactory.createTitledBorder("Bill Calculator"));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+        JLabel label = new JLabel("kWh Used:");
+        label.setFont(labelFont);
+        inputPanel.add(label, gbc);
+        gbc.gridx = 1;
+        inputPanel.add(new JTextField(15), gbc);
+        gbc.gridx = 2;
+        inputPanel.add(new JComboBox<>(new Account[]{new Account(BillDatabase.DEFAULT_ACCOUNT, "Default")}), gbc);
+        gbc.gridx = 3;
+        JButton button = new JButton("Calculate");
+        button.setBackground(new Color(70, 130, 180));
+        button.setForeground(Color.WHITE);
+        inputPanel.add(button, gbc);
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        inputPanel.add(new JCheckBox("As you type"), gbc);
+        gbc.gridx = 1;
+        inputPanel.add(new JScrollPane(new JTextArea(2, 20)), gbc);
+
+        JTable table = new JTable(tableModel);
+        table.setFont(new Font("Arial", Font.PLAIN, 14));
+        table.getTableHeader().setFont(labelFont);
+        table.setDefaultRenderer(Double.class, new MeralcoBill.AmountRenderer());
+        BillRowSorter rowSorter = new BillRowSorter(tableModel);
+        rowSorter.setSortKeys(BillRowSorter.keysFor(BillOrder.NEWEST_FIRST));
+        table.setRowSorter(rowSorter);
+
+        JPanel window = new JPanel(new BorderLayout(10, 10));
+        window.add(inputPanel, BorderLayout.NORTH);
+        window.add(new JScrollPane(table), BorderLayout.CENTER);
+        window.add(new MetricsPanel(metrics), BorderLayout.SOUTH);
+        return window;
+    }
+
+    private static void paint(JPanel window) {
+        window.setSize(750, 700);
+        window.validate();
+        BufferedImage image = new BufferedImage(750, 700, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            window.printAll(g);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private static void deleteDatabase(Path file) throws IOException {
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            Files.deleteIfExists(Paths.get(file + suffix));
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package meralco;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+// Computes an itemized bill (generation, transmission, system loss, distribution,
+// metering, subsidies, lifeline discount, universal charges, VAT, ...) from a
+// versioned tariff definition. Tier tables are compiled into arrays up front, so
+// evaluate() does primitive math only and allocates nothing; BigDecimal is used
+// only when calculate() rounds the result to centavos.
+//
+// Each component is one of:
+//   energy  - charge per kWh; tiers are per-kWh rates
+//   fixed   - flat amount per bill; tiers are amounts
+//   percent - fraction of the sum of earlier components (VAT, lifeline
+//             discount as a negative fraction); tiers are fractions
+// Tiers are "limit:value" pairs ending with an optional unbounded value, e.g.
+// "20:-1.0, 50:-0.5, 70:-0.35, 100:-0.2" or "200:4.5, 5.1". Energy tiers are
+// blocks by default (each kWh is charged at the rate of the block it falls in);
+// a bracketed component applies the value of the tier the whole consumption
+// falls in. Fixed and percent components are always bracketed.
+final class TariffEngine {
+
+    enum Kind { ENERGY, FIXED, PERCENT }
+
+    private final String version;
+    private final String[] names;
+    private final Kind[] kinds;
+    private final boolean[] bracketed;
+    private final double[][] tierLimits;
+    private final double[][] tierValues;
+    private final int[][] bases;
+
+    private TariffEngine(Builder builder) {
+        int count = builder.names.size();
+        version = builder.version;
+        names = builder.names.toArray(new String[0]);
+        kinds = builder.kinds.toArray(new Kind[0]);
+        bracketed = new boolean[count];
+        tierLimits = new double[count][];
+        tierValues = new double[count][];
+        bases = new int[count][];
+        for (int i = 0; i < count; i++) {
+            bracketed[i] = builder.bracketed.get(i);
+            tierLimits[i] = builder.tierLimits.get(i);
+            tierValues[i] = builder.tierValues.get(i);
+            bases[i] = builder.bases.get(i);
+        }
+    }
+
+    String getVersion() {
+        return version;
+    }
+
+    int getComponentCount() {
+        return names.length;
+    }
+
+    String getComponentName(int component) {
+        return names[component];
+    }
+
+    // Writes each component's unrounded amount into amounts (which must hold
+    // getComponentCount() values) and returns their sum.
+    double evaluate(double kwh, double[] amounts) {
+        double total = 0;
+        for (int i = 0; i < names.length; i++) {
+            double amount;
+            switch (kinds[i]) {
+                case ENERGY:
+                    amount = bracketed[i] ? kwh * bracketValue(i, kwh) : blockAmount(i, kwh);
+                    break;
+                case FIXED:
+                    amount = bracketValue(i, kwh);
+                    break;
+                default:
+                    double base = 0;
+                    int[] of = bases[i];
+                    for (int j = 0; j < of.length; j++) {
+                        base += amounts[of[j]];
+                    }
+                    amount = base * bracketValue(i, kwh);
+                    break;
+            }
+            amounts[i] = amount;
+            total += amount;
+        }
+        return total;
+    }
+
+    // Itemized bill with every line rounded to centavos; the total is the sum of
+    // the rounded lines, as printed on a bill.
+    Bill calculate(double kwh) {
+        double[] amounts = new double[names.length];
+        evaluate(kwh, amounts);
+        BigDecimal[] lines = new BigDecimal[amounts.length];
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < amounts.length; i++) {
+            lines[i] = round(amounts[i]);
+            total = total.add(lines[i]);
+        }
+        return new Bill(this, kwh, lines, total);
+    }
+
+    static BigDecimal round(double amount) {
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private double bracketValue(int component, double kwh) {
+        double[] limits = tierLimits[component];
+        for (int t = 0; t < limits.length; t++) {
+            if (kwh <= limits[t]) {
+                return tierValues[component][t];
+            }
+        }
+        return 0;
+    }
+
+    private double blockAmount(int component, double kwh) {
+        double[] limits = tierLimits[component];
+        double[] values = tierValues[component];
+        double amount = 0;
+        double lower = 0;
+        for (int t = 0; t < limits.length && kwh > lower; t++) {
+            amount += (Math.min(kwh, limits[t]) - lower) * values[t];
+            lower = limits[t];
+        }
+        return amount;
+    }
+
+    static TariffEngine load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Properties properties = new Properties();
+            properties.load(reader);
+            return fromProperties(properties);
+        }
+    }
+
+    // Reads a definition like:
+    //   version = 2024-06
+    //   effective = 2024-06-01
+    //   components = generation, distribution, lifeline, vat
+    //   generation.type = energy
+    //   generation.tiers = 5.91
+    //   lifeline.type = percent
+    //   lifeline.of = generation, distribution
+    //   lifeline.tiers = 20:-1.0, 50:-0.5, 70:-0.35, 100:-0.2
+    //   vat.type = percent
+    //   vat.of = generation, distribution, lifeline
+    //   vat.tiers = 0.12
+    static TariffEngine fromProperties(Properties properties) {
+        String version = required(properties, "version");
+        // effective is informational, but a malformed one is still an error
+        String effective = properties.getProperty("effective");
+        if (effective != null) {
+            try {
+                LocalDate.parse(effective.trim());
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("effective must be a YYYY-MM-DD date: " + effective);
+            }
+        }
+
+        Builder builder = new Builder(version);
+        for (String name : splitList(required(properties, "components"))) {
+            String type = required(properties, name + ".type").trim();
+            String tiers = required(properties, name + ".tiers");
+            switch (type) {
+                case "energy":
+                    builder.energy(name, "bracket".equals(properties.getProperty(name + ".tiering", "").trim()), tiers);
+                    break;
+                case "fixed":
+                    builder.fixed(name, tiers);
+                    break;
+                case "percent":
+                    builder.percent(name, tiers, splitList(required(properties, name + ".of")));
+                    break;
+                default:
+                    throw new IllegalArgumentException(name + ".type must be energy, fixed or percent: " + type);
+            }
+        }
+        return builder.build();
+    }
+
+    private static String required(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Tariff definition is missing " + key);
+        }
+        return value;
+    }
+
+    private static String[] splitList(String value) {
+        return value.trim().split("\\s*,\\s*");
+    }
+
+    static final class Builder {
+        private final String version;
+        private final List<String> names = new ArrayList<>();
+        private final List<Kind> kinds = new ArrayList<>();
+        private final List<Boolean> bracketed = new ArrayList<>();
+        private final List<double[]> tierLimits = new ArrayList<>();
+        private final List<double[]> tierValues = new ArrayList<>();
+        private final List<int[]> bases = new ArrayList<>();
+
+        Builder(String version) {
+            this.version = version;
+        }
+
+        Builder energy(String name, boolean bracketedTiers, String tiers) {
+            return add(name, Kind.ENERGY, bracketedTiers, tiers, new int[0]);
+        }
+
+        Builder fixed(String name, String tiers) {
+            return add(name, Kind.FIXED, true, tiers, new int[0]);
+        }
+
+        // of names earlier components
+        Builder percent(String name, String tiers, String... of) {
+            int[] indexes = new int[of.length];
+            for (int i = 0; i < of.length; i++) {
+                indexes[i] = names.indexOf(of[i]);
+                if (indexes[i] < 0) {
+                    throw new IllegalArgumentException(name + " refers to " + of[i] + ", which is not an earlier component");
+                }
+            }
+            return add(name, Kind.PERCENT, true, tiers, indexes);
+        }
+
+        private Builder add(String name, Kind kind, boolean bracketedTiers, String tiers, int[] of) {
+            if (names.contains(name)) {
+                throw new IllegalArgumentException("Duplicate tariff component: " + name);
+            }
+            String[] entries = splitList(tiers);
+            double[] limits = new double[entries.length];
+            double[] values = new double[entries.length];
+            try {
+                for (int t = 0; t < entries.length; t++) {
+                    int colon = entries[t].indexOf(':');
+                    if (colon < 0) {
+                        if (t != entries.length - 1) {
+                            throw new IllegalArgumentException("Only the last tier of " + name + " may be unbounded");
+                        }
+                        limits[t] = Double.POSITIVE_INFINITY;
+                        values[t] = Double.parseDouble(entries[t]);
+                    } else {
+                        limits[t] = Double.parseDouble(entries[t].substring(0, colon).trim());
+                        values[t] = Double.parseDouble(entries[t].substring(colon + 1).trim());
+                        if (t > 0 && limits[t] <= limits[t - 1]) {
+                            throw new IllegalArgumentException("Tier limits of " + name + " must increase");
+                        }
+                    }
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid tiers for " + name + ": " + tiers);
+            }
+
+            names.add(name);
+            kinds.add(kind);
+            bracketed.add(bracketedTiers);
+            tierLimits.add(limits);
+            tierValues.add(values);
+            bases.add(of);
+            return this;
+        }
+
+        TariffEngine build() {
+            if (names.isEmpty()) {
+                throw new IllegalArgumentException("Tariff " + version + " has no components");
+            }
+            return new TariffEngine(this);
+        }
+    }
+
+    // Rounded, itemized result of calculate()
+    static final class Bill {
+        private final TariffEngine tariff;
+        private final double kwh;
+        private final BigDecimal[] lines;
+        private final BigDecimal total;
+
+        private Bill(TariffEngine tariff, double kwh, BigDecimal[] lines, BigDecimal total) {
+            this.tariff = tariff;
+            this.kwh = kwh;
+            this.lines = lines;
+            this.total = total;
+        }
+
+        BigDecimal getLine(int component) {
+            return lines[component];
+        }
+
+        BigDecimal getTotal() {
+            return total;
+        }
+
+        // Average price per kWh, or 0 for no consumption
+        double getEffectiveRate() {
+            return kwh > 0 ? total.doubleValue() / kwh : 0;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder("Tariff ").append(tariff.version).append('\n');
+            for (int i = 0; i < lines.length; i++) {
+                text.append(tariff.names[i]).append(": ").append(lines[i]).append('\n');
+            }
+            return text.append("Total: ").append(total).toString();
+        }
+    }
+}
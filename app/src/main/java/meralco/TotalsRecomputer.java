@@ -0,0 +1,110 @@
+package meralco;
+
+import java.sql.*;
+import java.util.function.BooleanSupplier;
+
+// Rewrites the rate and total of many bills at once after a rate correction.
+// The matching ids are collected once into a temporary table, then updated
+// CHUNK_SIZE rows at a time in id order, each chunk one set-based UPDATE in its
+// own transaction. Progress can be reported and a cancel request takes effect
+// between chunks; chunks already committed stay committed.
+class TotalsRecomputer {
+    static final int CHUNK_SIZE = 50_000;
+
+    // Rate in effect for a bill's date; keeps the bill's own rate when the
+    // schedule starts after it
+    private static final String SCHEDULED_RATE = "COALESCE((SELECT s.rate FROM rate_schedule s " +
+            "WHERE s.effective_date <= substr(b.timestamp, 1, 10) " +
+            "ORDER BY s.effective_date DESC LIMIT 1), b.rate)";
+
+    // Ids of one chunk: those after the previous chunk, up to and including its last id
+    private static final String CHUNK_IDS = "SELECT id FROM temp.recompute_ids WHERE id > ? AND id <= ?";
+
+    interface ProgressListener {
+        // fraction is between 0 and 1
+        void progress(double fraction, long rowsUpdated);
+    }
+
+    private final Connection connection;
+
+    TotalsRecomputer(Connection connection) {
+        this.connection = connection;
+    }
+
+    // Sets the rate of every bill matching the filter to newRate, or to the
+    // scheduled rate for its date when newRate is null, and recalculates the
+    // total. Returns the number of rows updated.
+    long recompute(BillFilter filter, Double newRate, ProgressListener listener, BooleanSupplier cancelled) throws SQLException {
+        // The scheduled rate is looked up once per row and used for both columns
+        String sql = newRate != null
+                ? "UPDATE bills SET rate = ?, total = kwh * ? WHERE id IN (" + CHUNK_IDS + ")"
+                : "UPDATE bills SET rate = r.rate, total = bills.kwh * r.rate FROM " +
+                  "(SELECT b.id, " + SCHEDULED_RATE + " AS rate FROM bills b WHERE b.id IN (" + CHUNK_IDS + ")) r " +
+                  "WHERE bills.id = r.id";
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS temp.recompute_ids");
+            stmt.execute("CREATE TEMP TABLE recompute_ids (id INTEGER PRIMARY KEY)");
+        }
+        try {
+            // The filter runs once, however many chunks follow (a memo search
+            // would otherwise repeat its full-text match per chunk)
+            long total;
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "INSERT INTO temp.recompute_ids SELECT bills.id FROM " + filter.getFrom() + filter.toSql())) {
+                BillRepository.bind(pstmt, 1, filter.getParams());
+                total = pstmt.executeUpdate();
+            }
+            if (total == 0) {
+                listener.progress(1, 0);
+                return 0;
+            }
+            return update(sql, newRate, total, listener, cancelled);
+        } finally {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("DROP TABLE IF EXISTS temp.recompute_ids");
+            }
+        }
+    }
+
+    private long update(String sql, Double newRate, long total, ProgressListener listener, BooleanSupplier cancelled)
+            throws SQLException {
+        long updated = 0;
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement chunkEnd = connection.prepareStatement(
+                "SELECT MAX(id) FROM (SELECT id FROM temp.recompute_ids WHERE id > ? ORDER BY id LIMIT " + CHUNK_SIZE + ")");
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            long lastId = Long.MIN_VALUE;
+            while (!cancelled.getAsBoolean()) {
+                long endId;
+                chunkEnd.setLong(1, lastId);
+                try (ResultSet rs = chunkEnd.executeQuery()) {
+                    rs.next();
+                    endId = rs.getLong(1);
+                    if (rs.wasNull()) {
+                        break;
+                    }
+                }
+
+                int index = 1;
+                if (newRate != null) {
+                    pstmt.setDouble(index++, newRate);
+                    pstmt.setDouble(index++, newRate);
+                }
+                pstmt.setLong(index++, lastId);
+                pstmt.setLong(index, endId);
+                updated += pstmt.executeUpdate();
+                connection.commit();
+                lastId = endId;
+                listener.progress(Math.min(1, (double) updated / total), updated);
+            }
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return updated;
+    }
+}
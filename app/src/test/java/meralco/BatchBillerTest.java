@@ -0,0 +1,191 @@
+package meralco;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchBillerTest {
+
+    private static final int WORKERS = 4;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Connection connection;
+    private final StringWriter out = new StringWriter();
+    // "line: reason" for each rejected row, in the order reported
+    private final List<String> rejections = new ArrayList<>();
+    private final BatchBiller.Listener listener = new BatchBiller.Listener() {
+        @Override
+        public void progress(long rowsRead, long rowsBilled) {
+        }
+
+        @Override
+        public void rejected(String source, long lineNumber, String reason) {
+            rejections.add(lineNumber + ": " + reason);
+        }
+    };
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = connection.createStatement()) {
+            BillDatabase.createSchema(stmt);
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    // Chunks priced by several workers still come out in input order
+    @Test
+    public void outputKeepsInputOrderAcrossChunks() throws Exception {
+        int rows = 2 * BatchBiller.CHUNK_SIZE + 5;
+        List<String> lines = new ArrayList<>();
+        for (int id = rows; id >= 1; id--) {
+            lines.add(id + ",2024-01-15," + id + ",2");
+        }
+        BatchBiller.Result result = biller().bill(Collections.singletonList(file(lines)), out, listener);
+
+        assertEquals(rows, result.billed);
+        assertEquals(0, result.rejected);
+        String[] output = out.toString().split("\n");
+        assertEquals("id,date,kwh,rate,memo,total", output[0]);
+        assertEquals(rows + 1, output.length);
+        for (int i = 1; i < output.length; i++) {
+            int id = rows - i + 1;
+            assertEquals(id + ",2024-01-15 00:00:00," + (double) id + ",2.0,," + 2.0 * id, output[i]);
+        }
+    }
+
+    @Test
+    public void invalidRowsAreReportedAndLeftOut() throws Exception {
+        String source = file(Arrays.asList(
+                "id,date,kwh,rate,memo",
+                "1,2024-01-15,100,10,first",
+                "2,2024-02-30,100,10,",
+                "",
+                "3,2024-01-15,lots,10,",
+                "4,2024-01-15,50,10,\"a, b\""));
+        BatchBiller.Result result = biller().bill(Collections.singletonList(source), out, listener);
+
+        assertEquals(2, result.billed);
+        assertEquals(2, result.rejected);
+        assertEquals(2, rejections.size());
+        assertTrue(rejections.get(0).startsWith("3: "));
+        assertEquals("5: kWh and rate must be numbers", rejections.get(1));
+        assertEquals("id,date,kwh,rate,memo,total\n" +
+                "1,2024-01-15 00:00:00,100.0,10.0,first,1000.0\n" +
+                "4,2024-01-15 00:00:00,50.0,10.0,\"a, b\",500.0\n", out.toString());
+    }
+
+    @Test
+    public void savedRowsGetFreeIdsAndTakenOnesAreRejected() throws Exception {
+        IdAllocator ids = new IdAllocator();
+        ids.markUsed(1);
+        BatchBiller biller = biller();
+        biller.saveTo(connection, BillDatabase.DEFAULT_ACCOUNT, ids);
+        String source = file(Arrays.asList(",2024-01-15,100,10", "1,2024-01-16,100,10", ",2024-01-17,100,10",
+                ",2024-01-18,NaN,10"));
+        BatchBiller.Result result = biller.bill(Collections.singletonList(source), out, listener);
+
+        assertEquals(2, result.billed);
+        assertEquals(Arrays.asList("2: ID 1 already exists", "4: kWh and rate must be finite numbers"), rejections);
+        assertEquals(Arrays.asList(2, 3), savedIds());
+        assertTrue(out.toString().contains("\n2,2024-01-15 00:00:00,"));
+        assertTrue(out.toString().contains("\n3,2024-01-17 00:00:00,"));
+        assertTrue(connection.getAutoCommit());
+    }
+
+    // A chunk that fails to save is rolled back and its IDs freed, while the
+    // chunks before it stay saved and written.
+    @Test
+    public void failedChunkIsRolledBack() throws Exception {
+        int rows = 2 * BatchBiller.CHUNK_SIZE;
+        int taken = BatchBiller.CHUNK_SIZE + 100;
+        // In the table but unknown to the allocator, so the second chunk's insert fails
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("INSERT INTO bills (id, kwh, rate, total, timestamp) VALUES (" + taken +
+                    ", 1, 1, 1, '2020-01-01 00:00:00')");
+        }
+        List<String> lines = new ArrayList<>();
+        for (int id = 1; id <= rows; id++) {
+            lines.add(id + ",2024-01-15,100,10");
+        }
+        IdAllocator ids = new IdAllocator();
+        BatchBiller biller = biller();
+        biller.saveTo(connection, BillDatabase.DEFAULT_ACCOUNT, ids);
+        try {
+            biller.bill(Collections.singletonList(file(lines)), out, listener);
+            fail("expected the second chunk to fail");
+        } catch (SQLException e) {
+            // expected
+        }
+
+        List<Integer> saved = savedIds();
+        assertEquals(BatchBiller.CHUNK_SIZE + 1, saved.size());
+        assertEquals(BatchBiller.CHUNK_SIZE, saved.get(BatchBiller.CHUNK_SIZE - 1).intValue());
+        assertEquals(taken, saved.get(BatchBiller.CHUNK_SIZE).intValue());
+        assertTrue(ids.isUsed(BatchBiller.CHUNK_SIZE));
+        assertFalse(ids.isUsed(BatchBiller.CHUNK_SIZE + 1));
+        assertFalse(ids.isUsed(rows));
+        assertEquals(BatchBiller.CHUNK_SIZE + 1, out.toString().split("\n").length);
+        assertTrue(connection.getAutoCommit());
+    }
+
+    @Test
+    public void unreadableSourceFails() throws Exception {
+        String missing = new File(folder.getRoot(), "missing.csv").getPath();
+        try {
+            biller().bill(Collections.singletonList(missing), out, listener);
+            fail("expected an IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("cannot read " + missing));
+        }
+    }
+
+    private BatchBiller biller() {
+        return new BatchBiller(new BillPricer(new RateSchedule(), null), WORKERS);
+    }
+
+    private String file(List<String> lines) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+        return file.getPath();
+    }
+
+    private List<Integer> savedIds() throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM bills ORDER BY id")) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        return ids;
+    }
+}
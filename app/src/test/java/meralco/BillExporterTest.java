@@ -0,0 +1,42 @@
+package meralco;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+
+public class BillExporterTest {
+
+    @Test
+    public void escapesQuotesBackslashesAndControlCharacters() throws IOException {
+        assertEquals("\"say \\\"hi\\\"\"", json("say \"hi\""));
+        assertEquals("\"C:\\\\bills\"", json("C:\\bills"));
+        assertEquals("\"a\\nb\\rc\\td\"", json("a\nb\rc\td"));
+        assertEquals("\"\\u0001\\u001f\"", json("\u0001\u001f"));
+    }
+
+    @Test
+    public void leavesOtherCharactersAlone() throws IOException {
+        assertEquals("\"₱5.50 / kWh\"", json("₱5.50 / kWh"));
+        assertEquals("\"\"", json(""));
+    }
+
+    @Test
+    public void writesNullAsJsonNull() throws IOException {
+        assertEquals("null", json(null));
+    }
+
+    @Test
+    public void jsonReaderReadsItBack() throws IOException {
+        String memo = "line 1\nline \"2\"\t\\ \u0007 ₱";
+        assertEquals(memo, JsonReader.parse(json(memo)));
+    }
+
+    private static String json(String value) throws IOException {
+        StringWriter writer = new StringWriter();
+        BillExporter.writeJsonString(writer, value);
+        return writer.toString();
+    }
+}
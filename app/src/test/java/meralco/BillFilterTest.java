@@ -0,0 +1,94 @@
+package meralco;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class BillFilterTest {
+
+    private static final String DATE_RANGE = "bills.timestamp >= ? AND bills.timestamp < ?";
+
+    @Test
+    public void dateCoversTheWholeDayMonthOrYear() {
+        assertDates(BillFilter.byDate("2024-06-15"), "2024-06-15", "2024-06-16");
+        assertDates(BillFilter.byDate("2024-06"), "2024-06-01", "2024-07-01");
+        assertDates(BillFilter.byDate(" 2024 "), "2024-01-01", "2025-01-01");
+    }
+
+    @Test
+    public void dateBoundsRollOverMonthsAndYears() {
+        assertDates(BillFilter.byDate("2024-12-31"), "2024-12-31", "2025-01-01");
+        assertDates(BillFilter.byDate("2024-12"), "2024-12-01", "2025-01-01");
+        // Leap day
+        assertDates(BillFilter.byDate("2024-02"), "2024-02-01", "2024-03-01");
+        assertDates(BillFilter.byDate("2024-02-29"), "2024-02-29", "2024-03-01");
+    }
+
+    @Test
+    public void dateRangeIncludesTheWholeLastPeriod() {
+        assertDates(BillFilter.byDate("2024-01..2024-06"), "2024-01-01", "2024-07-01");
+        assertDates(BillFilter.byDate("2023 .. 2024-02-10"), "2023-01-01", "2024-02-11");
+    }
+
+    @Test
+    public void invalidDatesAreRejected() {
+        for (String term : new String[]{"June", "2024-13", "2024-02-30", "2024-6-1", "2024..", ""}) {
+            assertRejected(() -> BillFilter.byDate(term), BillFilter.DATE_HELP);
+        }
+    }
+
+    @Test
+    public void rateMatchesEveryRateStartingWithIt() {
+        assertRates(BillFilter.byRate("11.4"), 11.4, 11.5);
+        assertRates(BillFilter.byRate("11.40"), 11.4, 11.41);
+        assertRates(BillFilter.byRate("11"), 11, 12);
+        assertRates(BillFilter.byRate("0.005"), 0.005, 0.006);
+    }
+
+    @Test
+    public void rateRangeIsInclusive() {
+        BillFilter filter = BillFilter.byRate("10..12.5");
+        assertEquals("bills.rate BETWEEN ? AND ?", filter.getWhereClause());
+        assertEquals(Arrays.<Object>asList(10.0, 12.5), filter.getParams());
+        assertRejected(() -> BillFilter.byRate("ten"), BillFilter.RATE_HELP);
+        assertRejected(() -> BillFilter.byRate("10..x"), BillFilter.RATE_HELP);
+    }
+
+    @Test
+    public void inAccountLeadsWithTheAccountAndKeepsTheRanking() {
+        BillFilter filter = BillFilter.byMemo("meter").inAccount(3);
+        assertEquals("bills.account_id = ? AND (bills_fts MATCH ?)", filter.getWhereClause());
+        assertEquals(Arrays.<Object>asList(3, "\"meter\"*"), filter.getParams());
+        assertEquals("bills_fts.rank, bills.timestamp DESC", filter.getRankOrder());
+        assertEquals(" WHERE bills.account_id = ?", BillFilter.ALL.inAccount(3).toSql());
+    }
+
+    @Test
+    public void memoWordsAreQuotedPrefixes() {
+        assertEquals(Arrays.<Object>asList("\"new\"* \"say\"* \"\"\"hi\"\"\"* \"OR\"*"),
+                BillFilter.byMemo(" new  say \"hi\" OR ").getParams());
+    }
+
+    private static void assertDates(BillFilter filter, String from, String until) {
+        assertEquals(DATE_RANGE, filter.getWhereClause());
+        assertEquals(Arrays.<Object>asList(from, until), filter.getParams());
+    }
+
+    private static void assertRates(BillFilter filter, double from, double until) {
+        assertEquals("bills.rate >= ? AND bills.rate < ?", filter.getWhereClause());
+        assertEquals(from, (Double) filter.getParams().get(0), 1e-12);
+        assertEquals(until, (Double) filter.getParams().get(1), 1e-12);
+    }
+
+    private static void assertRejected(Runnable filter, String message) {
+        try {
+            filter.run();
+            fail("expected " + message);
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package meralco;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BillGeneratorTest {
+
+    private static final int ROWS = 2000;
+    private static final Pattern MEMO = Pattern.compile("Meter (\\d{5}) reading (\\d{6})( [a-z ]+)?");
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sameSeedWritesTheSameRows() throws Exception {
+        assertEquals(dump(generate(42, 0.2)), dump(generate(42, 0.2)));
+    }
+
+    @Test
+    public void otherSeedWritesOtherRows() throws Exception {
+        assertNotEquals(dump(generate(42, 0.2)), dump(generate(43, 0.2)));
+    }
+
+    @Test
+    public void writesTheRowsAsked() throws Exception {
+        List<Long> progress = new ArrayList<>();
+        String url = newUrl();
+        int lastId = new BillGenerator(7, 0).generate(url, ROWS, progress::add);
+
+        // Without gaps the ids run 1 to ROWS
+        assertEquals(ROWS, lastId);
+        assertEquals((long) ROWS, progress.get(progress.size() - 1).longValue());
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*), MIN(id), MAX(id) FROM bills")) {
+            assertEquals(ROWS, rs.getInt(1));
+            assertEquals(1, rs.getInt(2));
+            assertEquals(ROWS, rs.getInt(3));
+        }
+    }
+
+    @Test
+    public void gapsAreLeftBetweenIds() throws Exception {
+        String url = generate(42, 0.5);
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*), MAX(id) FROM bills")) {
+            assertEquals(ROWS, rs.getInt(1));
+            assertTrue(rs.getInt(2) > ROWS * 3 / 2);
+        }
+    }
+
+    // Ids and timestamps rise together, totals are kWh at the rate, and each
+    // meter's reading rises by the kWh billed.
+    @Test
+    public void rowsLookLikeSavedBills() throws Exception {
+        String url = generate(42, 0.2);
+        Map<String, Long> readings = new HashMap<>();
+        String lastTimestamp = "";
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT kwh, rate, total, timestamp, memo, account_id FROM bills ORDER BY id")) {
+            while (rs.next()) {
+                double kwh = rs.getDouble(1);
+                assertTrue(kwh >= 1);
+                assertEquals(kwh * rs.getDouble(2), rs.getDouble(3), 1e-9);
+                assertTrue(rs.getString(4).compareTo(lastTimestamp) > 0);
+                lastTimestamp = rs.getString(4);
+
+                Matcher memo = MEMO.matcher(rs.getString(5));
+                assertTrue(rs.getString(5), memo.matches());
+                assertEquals(Integer.parseInt(memo.group(1)), rs.getInt(6));
+                long reading = Long.parseLong(memo.group(2));
+                Long previous = readings.put(memo.group(1), reading);
+                if (previous != null) {
+                    assertEquals(previous + (long) kwh, reading);
+                }
+            }
+        }
+    }
+
+    // The rollup and memo index are built once the rows are in
+    @Test
+    public void databaseIsSummarizedAndIndexed() throws Exception {
+        String url = generate(42, 0);
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT SUM(reading_count) FROM monthly_summary")) {
+                assertEquals(ROWS, rs.getInt(1));
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM bills_fts WHERE bills_fts MATCH 'reading'")) {
+                assertEquals(ROWS, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    public void existingBillsTableIsRefused() throws Exception {
+        String url = generate(42, 0);
+        try {
+            new BillGenerator(42, 0).generate(url, ROWS, null);
+            fail("expected an SQLException");
+        } catch (SQLException e) {
+            assertEquals("The database already has a bills table", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void gapRateOverLimitIsRefused() {
+        new BillGenerator(42, 0.95);
+    }
+
+    private String generate(long seed, double idGapRate) throws Exception {
+        String url = newUrl();
+        new BillGenerator(seed, idGapRate).generate(url, ROWS, null);
+        return url;
+    }
+
+    private String newUrl() throws Exception {
+        return "jdbc:sqlite:" + folder.newFolder().getPath() + "/bills.db";
+    }
+
+    private static List<String> dump(String url) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, kwh, rate, total, timestamp, memo, account_id FROM bills ORDER BY id")) {
+            while (rs.next()) {
+                rows.add(rs.getInt(1) + "," + rs.getDouble(2) + "," + rs.getDouble(3) + "," + rs.getDouble(4) + ","
+                        + rs.getString(5) + "," + rs.getString(6) + "," + rs.getInt(7));
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,97 @@
+package meralco;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class BillImporterTest {
+
+    private Connection connection;
+    // "line: reason" for each rejected row, in the order reported
+    private final List<String> rejections = new ArrayList<>();
+    private final BillImporter.Listener listener = new BillImporter.Listener() {
+        @Override
+        public void progress(long rowsRead, long rowsImported) {
+        }
+
+        @Override
+        public void rejected(long lineNumber, String reason) {
+            rejections.add(lineNumber + ": " + reason);
+        }
+    };
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = connection.createStatement()) {
+            BillDatabase.createSchema(stmt);
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void rowsAreImportedWithFreeIds() throws Exception {
+        IdAllocator ids = new IdAllocator();
+        BillImporter.Result result = importCsv(ids, "id,date,kwh,rate,memo\n" +
+                ",2024-01-15,100,10,first\n" +
+                "5,2024-01-16 08:30:00,50,10\n" +
+                "5,2024-01-17,50,10\n");
+
+        assertEquals(2, result.imported);
+        assertEquals(1, result.rejected);
+        assertEquals(Arrays.asList("4: ID 5 already exists"), rejections);
+        assertEquals(Arrays.asList("1 2024-01-15 00:00:00 1000.0 first", "5 2024-01-16 08:30:00 500.0 "), bills());
+        assertEquals(2, ids.nextId());
+    }
+
+    // NaN and Infinity parse as doubles, but are rejected like any other bad
+    // value rather than failing the chunk they are in.
+    @Test
+    public void nonFiniteValuesAreRejected() throws Exception {
+        BillImporter.Result result = importCsv(new IdAllocator(),
+                "1,2024-01-15,NaN,10\n" +
+                "2,2024-01-15,100,Infinity\n" +
+                "3,2024-01-15,-Infinity,10\n" +
+                "4,2024-01-15,100,10\n");
+
+        assertEquals(1, result.imported);
+        assertEquals(3, result.rejected);
+        assertEquals(Arrays.asList("1: kWh and rate must be finite numbers", "2: kWh and rate must be finite numbers",
+                "3: kWh and rate must be finite numbers"), rejections);
+        assertEquals(Arrays.asList("4 2024-01-15 00:00:00 1000.0 "), bills());
+    }
+
+    private BillImporter.Result importCsv(IdAllocator ids, String csv) throws Exception {
+        BillImporter importer = new BillImporter(connection, BillDatabase.DEFAULT_ACCOUNT, ids,
+                new BillPricer(new RateSchedule(), null));
+        return importer.importCsv(new StringReader(csv), listener);
+    }
+
+    // "id timestamp total memo" for each bill, by id
+    private List<String> bills() throws SQLException {
+        List<String> bills = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, timestamp, total, memo FROM bills ORDER BY id")) {
+            while (rs.next()) {
+                bills.add(rs.getInt(1) + " " + rs.getString(2) + " " + rs.getDouble(3) + " " + rs.getString(4));
+            }
+        }
+        return bills;
+    }
+}
@@ -0,0 +1,194 @@
+package meralco;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+// Runs the API over a fresh database on a free local port.
+public class BillServerTest {
+
+    private static final String BILL = "\"date\": \"2024-05-01\", \"kwh\": 100, \"rate\": 10";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private BillServer server;
+
+    // Status and body of the last request
+    private int status;
+    private String body;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new BillServer("jdbc:sqlite:" + folder.newFile("bills.db").getPath(), BillDatabase.DEFAULT_ACCOUNT,
+                new OperationMetrics());
+        server.start(new InetSocketAddress("127.0.0.1", 0), 2, null);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void createGetAndDelete() throws Exception {
+        request("POST", "/api/bills", "{" + BILL + ", \"memo\": \"first\"}");
+        assertEquals(201, status);
+        Map<String, Object> bill = JsonReader.parseObject(body);
+        assertEquals(1.0, bill.get("id"));
+        assertEquals("2024-05-01", ((String) bill.get("timestamp")).substring(0, 10));
+        assertEquals(1000.0, bill.get("total"));
+
+        request("GET", "/api/bills/1", null);
+        assertEquals(200, status);
+        assertEquals("first", JsonReader.parseObject(body).get("memo"));
+
+        request("DELETE", "/api/bills/1", null);
+        assertEquals(204, status);
+        request("DELETE", "/api/bills/1", null);
+        assertEquals(404, status);
+        request("GET", "/api/bills/1", null);
+        assertEquals(404, status);
+    }
+
+    @Test
+    public void takenIdConflicts() throws Exception {
+        request("POST", "/api/bills", "{\"id\": 5, " + BILL + "}");
+        assertEquals(201, status);
+        request("POST", "/api/bills", "{\"id\": 5, " + BILL + "}");
+        assertEquals(409, status);
+        assertEquals("ID 5 already exists", JsonReader.parseObject(body).get("error"));
+    }
+
+    @Test
+    public void updateMovesTheBillToANewId() throws Exception {
+        request("POST", "/api/bills", "{" + BILL + ", \"memo\": \"moving\"}");
+        request("PUT", "/api/bills/1", "{\"id\": 9, " + BILL + ", \"memo\": \"moved\"}");
+        assertEquals(200, status);
+        assertEquals(9.0, JsonReader.parseObject(body).get("id"));
+
+        request("GET", "/api/bills/1", null);
+        assertEquals(404, status);
+        request("GET", "/api/bills/9", null);
+        assertEquals(200, status);
+
+        // The memo index follows the bill to its new ID
+        request("GET", "/api/bills?by=memo&q=moved", null);
+        List<?> bills = (List<?>) JsonReader.parseObject(body).get("bills");
+        assertEquals(1, bills.size());
+        assertEquals(9.0, ((Map<?, ?>) bills.get(0)).get("id"));
+
+        // The old ID is free again
+        request("POST", "/api/bills", "{" + BILL + "}");
+        assertEquals(1.0, JsonReader.parseObject(body).get("id"));
+    }
+
+    @Test
+    public void updateOntoATakenIdConflicts() throws Exception {
+        request("POST", "/api/bills", "{" + BILL + ", \"memo\": \"one\"}");
+        request("POST", "/api/bills", "{" + BILL + ", \"memo\": \"two\"}");
+        request("PUT", "/api/bills/1", "{\"id\": 2, " + BILL + "}");
+        assertEquals(409, status);
+
+        request("GET", "/api/bills/1", null);
+        assertEquals("one", JsonReader.parseObject(body).get("memo"));
+        request("GET", "/api/bills/2", null);
+        assertEquals("two", JsonReader.parseObject(body).get("memo"));
+    }
+
+    @Test
+    public void updateOfMissingBillIsNotFound() throws Exception {
+        request("PUT", "/api/bills/3", "{" + BILL + "}");
+        assertEquals(404, status);
+    }
+
+    @Test
+    public void badRequestsAreRejected() throws Exception {
+        request("POST", "/api/bills", "{\"date\": \"2024-05-01\", \"rate\": 10}");
+        assertEquals(400, status);
+        assertEquals("kwh is required", JsonReader.parseObject(body).get("error"));
+        request("POST", "/api/bills", "{\"id\": 1.5, " + BILL + "}");
+        assertEquals(400, status);
+        request("POST", "/api/bills", "not json");
+        assertEquals(400, status);
+        request("GET", "/api/bills?limit=0", null);
+        assertEquals(400, status);
+        request("GET", "/api/bills/abc", null);
+        assertEquals(404, status);
+        request("GET", "/api/calculate", null);
+        assertEquals(405, status);
+        request("HEAD", "/api/bills", null);
+        assertEquals(405, status);
+        assertEquals("", body);
+        request("POST", "/api/bills?account=42", "{" + BILL + "}");
+        assertEquals(404, status);
+    }
+
+    @Test
+    public void calculateWithoutTariffNeedsARate() throws Exception {
+        request("POST", "/api/calculate", "{\"kwh\": 250, \"rate\": 2}");
+        assertEquals(200, status);
+        Map<String, Object> price = JsonReader.parseObject(body);
+        assertEquals(500.0, price.get("total"));
+        assertEquals(BillPricer.GIVEN, price.get("source"));
+
+        request("POST", "/api/calculate", "{\"kwh\": 250}");
+        assertEquals(400, status);
+    }
+
+    @Test
+    public void searchCountsAndPages() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            request("POST", "/api/bills", "{" + BILL + "}");
+        }
+        request("GET", "/api/bills?order=id&limit=2&offset=1", null);
+        assertEquals(200, status);
+        Map<String, Object> page = JsonReader.parseObject(body);
+        assertEquals(3.0, page.get("count"));
+        List<?> bills = (List<?>) page.get("bills");
+        assertEquals(2, bills.size());
+        assertEquals(2.0, ((Map<?, ?>) bills.get(0)).get("id"));
+    }
+
+    private void request(String method, String path, String json) throws IOException {
+        InetSocketAddress address = server.getAddress();
+        HttpURLConnection http = (HttpURLConnection) new URL("http", address.getHostString(), address.getPort(), path)
+                .openConnection();
+        http.setRequestMethod(method);
+        if (json != null) {
+            http.setDoOutput(true);
+            try (OutputStream out = http.getOutputStream()) {
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        status = http.getResponseCode();
+        InputStream in = status < 400 ? http.getInputStream() : http.getErrorStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (in != null) {
+            try (InputStream stream = in) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = stream.read(buffer)) != -1) {
+                    bytes.write(buffer, 0, read);
+                }
+            }
+        }
+        body = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        http.disconnect();
+    }
+}
@@ -0,0 +1,265 @@
+package meralco;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.swing.*;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Patches single-row writes into a paged result, newest first, with pages 0, 2
+// and 4 of five loaded. Bill n is dated n days after START, so position p holds
+// bill BILLS - p until something changes.
+public class BillTableModelTest {
+
+    private static final int BILLS = 5 * BillTableModel.PAGE_SIZE;
+    private static final LocalDate START = LocalDate.of(2020, 1, 1);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Connection connection;
+    private DatabaseExecutor executor;
+    private BillTableModel model;
+
+    @Before
+    public void setUp() throws Exception {
+        String url = "jdbc:sqlite:" + folder.newFile("bills.db").getPath();
+        connection = BillDatabase.open(url);
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "INSERT INTO bills (id, kwh, rate, total, timestamp) VALUES (?, 100, 10, 1000, ?)")) {
+            for (int id = 1; id <= BILLS; id++) {
+                pstmt.setInt(1, id);
+                pstmt.setString(2, timestamp(id, "12:00:00"));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        OperationMetrics metrics = new OperationMetrics();
+        executor = new DatabaseExecutor(metrics);
+        List<BillRepository> readers = DatabaseExecutor.openReaders(url, 1);
+        onEdt(() -> executor.startReaders(readers));
+        model = new BillTableModel(executor, metrics);
+        model.setRepository(new BillRepository(connection));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdown(() -> { });
+        connection.close();
+    }
+
+    @Test
+    public void rowMovedForwardLandsBetweenAnchors() throws Exception {
+        query(BillFilter.ALL);
+        // Just after bill 550 (position 450): counted forward from the start of page 2
+        write(BILLS, "UPDATE bills SET timestamp = '" + timestamp(550, "06:00:00") + "' WHERE id = " + BILLS);
+        assertPlaced(BILLS, 2);
+        // Removing the row from page 0 left the later pages to be reloaded
+        assertRows(0);
+    }
+
+    @Test
+    public void rowMovedBackLandsBetweenAnchors() throws Exception {
+        query(BillFilter.ALL);
+        // Just after bill 440 (position 560): counted back from the end of page 2
+        write(1, "UPDATE bills SET timestamp = '" + timestamp(440, "06:00:00") + "' WHERE id = 1");
+        assertPlaced(1, 2);
+        assertRows(2);
+    }
+
+    @Test
+    public void insertedRowIsPlacedAndCounted() throws Exception {
+        query(BillFilter.ALL);
+        write(5000, "INSERT INTO bills (id, kwh, rate, total, timestamp) VALUES (5000, 1, 1, 1, '"
+                + timestamp(170, "23:00:00") + "')");
+        assertEquals(BILLS + 1, onEdt(model::getRowCount).intValue());
+        assertPlaced(5000, 4);
+        assertRows(4);
+    }
+
+    @Test
+    public void deletedRowIsRemoved() throws Exception {
+        query(BillFilter.ALL);
+        write(450, "DELETE FROM bills WHERE id = 450");
+        assertEquals(BILLS - 1, onEdt(model::getRowCount).intValue());
+        assertRows(2);
+    }
+
+    @Test
+    public void updateInPlaceKeepsThePosition() throws Exception {
+        query(BillFilter.ALL);
+        write(480, "UPDATE bills SET rate = 12, total = 1200 WHERE id = 480");
+        int position = expectedIds().indexOf(480);
+        assertEquals(BILLS - 480, position);
+        assertEquals(1200, onEdt(() -> model.getTotal(position)), 1e-9);
+        assertRows(4);
+    }
+
+    @Test
+    public void rowLeavingTheFilterIsRemoved() throws Exception {
+        // Every bill but the last 50
+        BillFilter before2022 = BillFilter.byDate("2020..2021");
+        query(before2022);
+        int count = onEdt(model::getRowCount);
+        write(300, "UPDATE bills SET timestamp = '2023-01-01 12:00:00' WHERE id = 300");
+        assertEquals(count - 1, onEdt(model::getRowCount).intValue());
+        assertEquals(-1, expectedIds(before2022).indexOf(300));
+        assertRows(before2022, 2);
+    }
+
+    // A page that fails to load is not cached empty: showing it again loads it
+    @Test
+    public void failedPageIsLoadedAgain() throws Exception {
+        query(BillFilter.ALL);
+        int row = BillTableModel.PAGE_SIZE;
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE bills RENAME TO bills_away");
+            onEdt(() -> model.getValueAt(row, 0));
+            awaitReads();
+            assertEquals(-1, onEdt(() -> model.getRecordId(row)).intValue());
+            stmt.execute("ALTER TABLE bills_away RENAME TO bills");
+        }
+        loadPage(1);
+        assertEquals(BILLS - row, onEdt(() -> model.getRecordId(row)).intValue());
+        assertRows(4);
+    }
+
+    // Queries the filter paged and loads pages 0, 2 and 4.
+    private void query(BillFilter filter) throws Exception {
+        CountDownLatch counted = new CountDownLatch(1);
+        onEdt(() -> model.setFirstPageQuery(filter, BillOrder.NEWEST_FIRST, count -> counted.countDown(),
+                e -> { throw new AssertionError(e); }));
+        assertTrue(counted.await(5, TimeUnit.SECONDS));
+        assertTrue(onEdt(() -> !model.isResident()));
+        for (int page = 0; page <= 4; page += 2) {
+            loadPage(page);
+        }
+    }
+
+    // Shows the first row of a page and waits for the page to load.
+    private void loadPage(int page) throws Exception {
+        int row = page * BillTableModel.PAGE_SIZE;
+        onEdt(() -> model.getValueAt(row, 0));
+        for (int i = 0; i < 500 && onEdt(() -> model.getRecordId(row)) < 0; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    // Waits for the reads already queued, and their callbacks, to finish: the
+    // single reader runs them in order.
+    private void awaitReads() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        onEdt(() -> executor.read("barrier", reader -> null, result -> done.countDown(),
+                e -> done.countDown()));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    // Runs one tracked write of bill id on the database thread and patches it in.
+    private void write(int id, String sql) throws Exception {
+        CountDownLatch applied = new CountDownLatch(1);
+        AtomicReference<SQLException> error = new AtomicReference<>();
+        onEdt(() -> {
+            BillTableModel.RowChange change = model.trackChange();
+            executor.execute("write", () -> {
+                change.before(id);
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute(sql);
+                }
+                change.after(id);
+                return null;
+            }, result -> {
+                model.applyChange(change);
+                applied.countDown();
+            }, e -> {
+                error.set(e);
+                applied.countDown();
+            });
+        });
+        assertTrue(applied.await(5, TimeUnit.SECONDS));
+        if (error.get() != null) {
+            throw error.get();
+        }
+    }
+
+    // The bill is at its place in the database's order, in the given page.
+    private void assertPlaced(int id, int page) throws Exception {
+        int position = expectedIds().indexOf(id);
+        assertEquals(page, position / BillTableModel.PAGE_SIZE);
+        assertEquals(id, onEdt(() -> model.getRecordId(position)).intValue());
+    }
+
+    private void assertRows(int throughPage) throws Exception {
+        assertRows(BillFilter.ALL, throughPage);
+    }
+
+    // Every loaded row up to the end of throughPage matches the database. Pages
+    // after the first one changed are stale until reloaded, so are not checked.
+    private void assertRows(BillFilter filter, int throughPage) throws Exception {
+        List<Integer> expected = expectedIds(filter);
+        int checked = 0;
+        for (int position = 0; position < (throughPage + 1) * BillTableModel.PAGE_SIZE; position++) {
+            int row = position;
+            int id = onEdt(() -> model.getRecordId(row));
+            if (id >= 0) {
+                assertEquals("position " + position, expected.get(position).intValue(), id);
+                checked++;
+            }
+        }
+        assertTrue(checked >= BillTableModel.PAGE_SIZE - 1);
+    }
+
+    private List<Integer> expectedIds() throws SQLException {
+        return expectedIds(BillFilter.ALL);
+    }
+
+    private List<Integer> expectedIds(BillFilter filter) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT bills.id FROM bills" + filter.toSql()
+                + " ORDER BY " + BillOrder.NEWEST_FIRST.toSql())) {
+            BillRepository.bind(pstmt, 1, filter.getParams());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static String timestamp(int day, String time) {
+        return START.plusDays(day) + " " + time;
+    }
+
+    private static <T> T onEdt(Callable<T> action) throws Exception {
+        AtomicReference<T> result = new AtomicReference<>();
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                result.set(action.call());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        return result.get();
+    }
+
+    private static void onEdt(Runnable action) throws Exception {
+        SwingUtilities.invokeAndWait(action);
+    }
+}
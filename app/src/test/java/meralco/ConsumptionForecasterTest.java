@@ -0,0 +1,116 @@
+package meralco;
+
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConsumptionForecasterTest {
+
+    private static final double DELTA = 1e-6;
+
+    @Test
+    public void noHistoryHasNoForecast() {
+        ConsumptionForecaster forecaster = ConsumptionForecaster.of(new ArrayList<>());
+        assertEquals(0, forecaster.getMonthCount());
+        assertNull(forecaster.forecast(2024, 1));
+    }
+
+    @Test
+    public void oneMonthIsItsOwnAverage() {
+        ConsumptionForecaster.Forecast forecast = ConsumptionForecaster.of(months(2023, 5, 180)).forecast(2023, 6);
+        assertEquals(180, forecast.kwh, DELTA);
+        assertEquals("average of 1 month(s)", forecast.method);
+    }
+
+    @Test
+    public void trendIsExtendedToTheNextMonth() {
+        ConsumptionForecaster forecaster = ConsumptionForecaster.of(months(2023, 1, 100, 110, 120, 130, 140, 150));
+        assertEquals(6, forecaster.getMonthCount());
+        ConsumptionForecaster.Forecast forecast = forecaster.forecast(2023, 7);
+        assertEquals(160, forecast.kwh, DELTA);
+        // Under a year of history there is no seasonal adjustment
+        assertEquals("linear trend over 6 months", forecast.method);
+    }
+
+    @Test
+    public void nextMonthRollsOverTheYear() {
+        ConsumptionForecaster forecaster = ConsumptionForecaster.of(months(2023, 11, 100, 100));
+        int next = forecaster.nextMonthIndex();
+        assertEquals(2024, ConsumptionForecaster.yearOf(next));
+        assertEquals(1, ConsumptionForecaster.monthOf(next));
+    }
+
+    @Test
+    public void fallingTrendStopsAtZero() {
+        ConsumptionForecaster.Forecast forecast = ConsumptionForecaster.of(months(2023, 1, 100, 50)).forecast(2023, 4);
+        assertEquals(0, forecast.kwh, DELTA);
+    }
+
+    // Two years rising 5 kWh a month, with January 10 kWh above the trend,
+    // February 20 below and March 10 above: a pattern that leaves the trend
+    // line itself unchanged.
+    @Test
+    public void fullYearAddsTheMonthsDistanceFromTheTrend() {
+        double[] kwh = new double[24];
+        for (int i = 0; i < kwh.length; i++) {
+            kwh[i] = 200 + 5 * i + (i % 12 == 0 || i % 12 == 2 ? 10 : i % 12 == 1 ? -20 : 0);
+        }
+        ConsumptionForecaster forecaster = ConsumptionForecaster.of(months(2022, 1, kwh));
+
+        ConsumptionForecaster.Forecast february = forecaster.forecast(2024, 2);
+        assertEquals(200 + 5 * 25 - 20, february.kwh, DELTA);
+        assertEquals("linear trend over 24 months, seasonal adjustment -20.00 kWh", february.method);
+
+        assertEquals(200 + 5 * 27, forecaster.forecast(2024, 4).kwh, DELTA);
+    }
+
+    @Test
+    public void elevenMonthsHaveNoSeasonalAdjustment() {
+        double[] kwh = new double[ConsumptionForecaster.SEASONAL_MONTHS - 1];
+        Arrays.fill(kwh, 100);
+        kwh[0] = 400;
+        ConsumptionForecaster.Forecast forecast = ConsumptionForecaster.of(months(2023, 1, kwh)).forecast(2024, 1);
+        assertFalse(forecast.method.contains("seasonal"));
+    }
+
+    // A month's readings reach the forecaster as one rollup row with their sum.
+    @Test
+    public void readingsInAMonthAreSummedByTheRollup() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+             Statement stmt = connection.createStatement()) {
+            BillDatabase.createSchema(stmt);
+            stmt.execute("INSERT INTO bills (id, kwh, rate, total, timestamp) VALUES " +
+                    "(1, 60, 10, 600, '2023-01-05 09:00:00'), (2, 40, 10, 400, '2023-01-20 09:00:00'), " +
+                    "(3, 150, 10, 1500, '2023-02-05 09:00:00')");
+            List<MonthlySummary> summaries = MonthlySummary.loadAll(connection, BillDatabase.DEFAULT_ACCOUNT);
+            ConsumptionForecaster forecaster = ConsumptionForecaster.of(summaries);
+            assertEquals(2, forecaster.getMonthCount());
+            ConsumptionForecaster.Forecast forecast = forecaster.forecast(2023, 3);
+            assertEquals(200, forecast.kwh, DELTA);
+            assertTrue(forecast.method.startsWith("linear trend"));
+        }
+    }
+
+    // Consecutive months from year-month with the given kWh
+    private static List<MonthlySummary> months(int year, int month, double... kwh) {
+        List<MonthlySummary> summaries = new ArrayList<>();
+        int start = ConsumptionForecaster.monthIndex(year, month);
+        for (int i = 0; i < kwh.length; i++) {
+            String key = String.format("%04d-%02d", ConsumptionForecaster.yearOf(start + i),
+                    ConsumptionForecaster.monthOf(start + i));
+            summaries.add(new MonthlySummary(BillDatabase.DEFAULT_ACCOUNT, key, 1, kwh[i], kwh[i] * 10, 10,
+                    kwh[i], kwh[i], key + "-01 00:00:00", kwh[i]));
+        }
+        return summaries;
+    }
+}
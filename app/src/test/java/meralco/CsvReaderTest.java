@@ -0,0 +1,87 @@
+package meralco;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class CsvReaderTest {
+
+    @Test
+    public void splitsPlainFields() throws IOException {
+        CsvReader csv = reader("1,2024-06-01,120,5.5\n2,,80,\n");
+        assertEquals(Arrays.asList("1", "2024-06-01", "120", "5.5"), csv.readRecord());
+        assertEquals(Arrays.asList("2", "", "80", ""), csv.readRecord());
+        assertNull(csv.readRecord());
+    }
+
+    @Test
+    public void quotedFieldsKeepCommasAndEscapedQuotes() throws IOException {
+        CsvReader csv = reader("\"a,b\",\"say \"\"hi\"\"\",\"\"\n");
+        assertEquals(Arrays.asList("a,b", "say \"hi\"", ""), csv.readRecord());
+    }
+
+    @Test
+    public void quoteInsideAnUnquotedFieldIsLiteral() throws IOException {
+        CsvReader csv = reader("5\"6,x\n");
+        assertEquals(Arrays.asList("5\"6", "x"), csv.readRecord());
+    }
+
+    @Test
+    public void quotedFieldSpansLines() throws IOException {
+        CsvReader csv = reader("1,\"two\nlines\"\n2,x\n");
+        assertEquals(1, csv.getLineNumber());
+        assertEquals(Arrays.asList("1", "two\nlines"), csv.readRecord());
+        assertEquals(3, csv.getLineNumber());
+        assertEquals(Arrays.asList("2", "x"), csv.readRecord());
+        assertEquals(4, csv.getLineNumber());
+    }
+
+    @Test
+    public void acceptsCrLfAndAMissingFinalNewline() throws IOException {
+        CsvReader csv = reader("a,b\r\n\"c\r\nd\",e");
+        assertEquals(Arrays.asList("a", "b"), csv.readRecord());
+        // Inside quotes a carriage return is kept
+        assertEquals(Arrays.asList("c\r\nd", "e"), csv.readRecord());
+        assertNull(csv.readRecord());
+    }
+
+    @Test
+    public void emptyLineIsOneEmptyField() throws IOException {
+        CsvReader csv = reader("\nx\n");
+        assertEquals(Collections.singletonList(""), csv.readRecord());
+        assertEquals(Collections.singletonList("x"), csv.readRecord());
+    }
+
+    @Test
+    public void readsFieldsAcrossBufferRefills() throws IOException {
+        StringBuilder memo = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            memo.append(i % 10);
+        }
+        CsvReader csv = reader("1,\"" + memo + "\"\n2\n");
+        assertEquals(Arrays.asList("1", memo.toString()), csv.readRecord());
+        assertEquals(Collections.singletonList("2"), csv.readRecord());
+    }
+
+    @Test
+    public void unterminatedQuoteFails() {
+        CsvReader csv = reader("1,\"open\n2\n");
+        try {
+            csv.readRecord();
+            fail("expected an IOException");
+        } catch (IOException e) {
+            assertEquals("Unterminated quoted field before line 3", e.getMessage());
+        }
+    }
+
+    private static CsvReader reader(String text) {
+        return new CsvReader(new StringReader(text));
+    }
+}
@@ -0,0 +1,218 @@
+package meralco;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.*;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// Drives the executor from the EDT, as the window does, with one in-memory
+// reader so queries run one at a time in submission order.
+public class DatabaseExecutorTest {
+
+    private DatabaseExecutor executor;
+    // Callbacks and busy changes in the order the EDT saw them
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() throws Exception {
+        executor = new DatabaseExecutor(new OperationMetrics());
+        onEdt(() -> executor.setBusyListener(busy -> events.add(busy ? "busy" : "idle")));
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown(() -> { });
+    }
+
+    @Test
+    public void supersededQueryIsSkippedBeforeItStartsAndInterruptedWhileItRuns() throws Exception {
+        startReader();
+        CountDownLatch firstRunning = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        AtomicBoolean firstInterrupted = new AtomicBoolean();
+        AtomicBoolean secondRan = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(1);
+
+        onEdt(() -> executor.query("search", reader -> {
+            firstRunning.countDown();
+            await(releaseFirst);
+            try {
+                return selectOne(reader);
+            } catch (SQLException e) {
+                firstInterrupted.set(true);
+                throw e;
+            }
+        }, result -> events.add("first"), error -> events.add("first failed")));
+        assertTrue(firstRunning.await(5, TimeUnit.SECONDS));
+
+        // The first is running, so it is interrupted; the second waits for the reader
+        onEdt(() -> executor.query("search", reader -> {
+            secondRan.set(true);
+            return selectOne(reader);
+        }, result -> events.add("second"), error -> events.add("second failed")));
+        // The second hasn't started, so it is skipped
+        onEdt(() -> executor.query("search", DatabaseExecutorTest::selectOne, result -> {
+            events.add("third " + result);
+            done.countDown();
+        }, error -> events.add("third failed")));
+        releaseFirst.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        onEdt(() -> { });
+        assertTrue(firstInterrupted.get());
+        assertFalse(secondRan.get());
+        // Only the latest query reports back, on a reader whose interrupt was cleared
+        assertEquals(Arrays.asList("busy", "idle", "third 1"), events);
+    }
+
+    @Test
+    public void queriesWithDifferentKeysDoNotSupersedeEachOther() throws Exception {
+        startReader();
+        CountDownLatch done = new CountDownLatch(2);
+        onEdt(() -> {
+            executor.query("page 1", DatabaseExecutorTest::selectOne, result -> {
+                events.add("page 1");
+                done.countDown();
+            }, error -> events.add("page 1 failed"));
+            executor.query("page 2", DatabaseExecutorTest::selectOne, result -> {
+                events.add("page 2");
+                done.countDown();
+            }, error -> events.add("page 2 failed"));
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        onEdt(() -> { });
+        assertEquals(Arrays.asList("busy", "page 1", "idle", "page 2"), events);
+    }
+
+    @Test
+    public void readsSubmittedBeforeTheReadersStartWaitForThem() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        onEdt(() -> executor.read("early", DatabaseExecutorTest::selectOne, result -> {
+            events.add("read " + result);
+            done.countDown();
+        }, error -> events.add("read failed")));
+        assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+
+        startReader();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void writesRunInOrderOnTheDatabaseThread() throws Exception {
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+        onEdt(() -> {
+            for (int i = 0; i < 3; i++) {
+                int write = i;
+                executor.execute("write " + i, () -> {
+                    threads.add(Thread.currentThread().getName() + " " + write);
+                    return write;
+                }, result -> events.add("wrote " + result), error -> events.add("write failed"));
+            }
+            executor.execute("fail", () -> {
+                throw new IllegalStateException("boom");
+            }, result -> events.add("no failure"), error -> {
+                events.add("failed: " + error.getMessage());
+                done.countDown();
+            });
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("database 0", "database 1", "database 2"), threads);
+        // A runtime exception in a task comes back as an SQLException
+        assertEquals(Arrays.asList("busy", "wrote 0", "wrote 1", "wrote 2", "idle",
+                "failed: java.lang.IllegalStateException: boom"), events);
+    }
+
+    @Test
+    public void taskThatThrowsAnErrorStillEndsBusy() throws Exception {
+        // The error still ends the database thread; keep it off the test output
+        List<Throwable> uncaught = Collections.synchronizedList(new ArrayList<>());
+        Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> uncaught.add(e));
+        try {
+            CountDownLatch done = new CountDownLatch(1);
+            onEdt(() -> executor.execute("error", () -> {
+                throw new LinkageError("missing class");
+            }, result -> events.add("no failure"), error -> {
+                events.add("failed: " + error.getMessage());
+                done.countDown();
+            }));
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList("busy", "idle", "failed: java.lang.LinkageError: missing class"), events);
+
+            // The database thread is replaced and keeps running writes
+            CountDownLatch next = new CountDownLatch(1);
+            onEdt(() -> executor.execute("next", () -> 1, result -> next.countDown(), error -> { }));
+            assertTrue(next.await(5, TimeUnit.SECONDS));
+            // The old thread reports the error as it ends, maybe after that
+            for (int i = 0; i < 500 && uncaught.isEmpty(); i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, uncaught.size());
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(handler);
+        }
+    }
+
+    @Test
+    public void shutdownInBackgroundRunsPendingWritesWithoutBlocking() throws Exception {
+        CountDownLatch releaseWrite = new CountDownLatch(1);
+        CountDownLatch stopped = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        onEdt(() -> {
+            executor.execute("slow write", () -> {
+                await(releaseWrite);
+                order.add("write");
+                return null;
+            }, result -> { }, error -> { });
+            executor.shutdownInBackground(() -> order.add("final task"), () -> {
+                order.add("stopped");
+                stopped.countDown();
+            });
+            // Returned while the write is still waiting
+            order.add("returned");
+        });
+        releaseWrite.countDown();
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("returned", "write", "final task", "stopped"), order);
+    }
+
+    private void startReader() throws Exception {
+        BillRepository reader = new BillRepository(DriverManager.getConnection("jdbc:sqlite::memory:"));
+        onEdt(() -> executor.startReaders(Collections.singletonList(reader)));
+    }
+
+    private static int selectOne(BillRepository reader) throws SQLException {
+        try (ResultSet rs = reader.prepare("SELECT 1").executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void onEdt(Runnable action) throws Exception {
+        SwingUtilities.invokeAndWait(action);
+    }
+}
@@ -0,0 +1,122 @@
+package meralco;
+
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IdAllocatorTest {
+
+    @Test
+    public void emptyAllocatorStartsAtOne() {
+        IdAllocator ids = new IdAllocator();
+        assertEquals(1, ids.nextId());
+        assertFalse(ids.isUsed(1));
+    }
+
+    @Test
+    public void loadFindsGapsBelowAndBetweenIds() throws SQLException {
+        IdAllocator ids = load(3, 4, 7, 10);
+        assertEquals(1, ids.nextId());
+        for (int id : new int[] {1, 2, 5, 6, 8, 9, 11}) {
+            assertFalse("id " + id, ids.isUsed(id));
+        }
+        for (int id : new int[] {3, 4, 7, 10}) {
+            assertTrue("id " + id, ids.isUsed(id));
+        }
+    }
+
+    @Test
+    public void loadOfEmptyTableStartsAtOne() throws SQLException {
+        IdAllocator ids = load();
+        assertEquals(1, ids.nextId());
+    }
+
+    @Test
+    public void markUsedSplitsAndShrinksRanges() throws SQLException {
+        IdAllocator ids = load(1, 5);
+        // Free: 2-4
+        ids.markUsed(3);
+        assertEquals(2, ids.nextId());
+        ids.markUsed(2);
+        assertEquals(4, ids.nextId());
+        ids.markUsed(4);
+        assertEquals(6, ids.nextId());
+        // Already used: no change
+        ids.markUsed(4);
+        assertEquals(6, ids.nextId());
+    }
+
+    @Test
+    public void markUsedAboveTheTopLeavesTheSkippedIdsFree() {
+        IdAllocator ids = new IdAllocator();
+        ids.markUsed(1);
+        ids.markUsed(5);
+        assertEquals(2, ids.nextId());
+        assertFalse(ids.isUsed(4));
+        assertTrue(ids.isUsed(5));
+        ids.markUsed(2);
+        ids.markUsed(3);
+        ids.markUsed(4);
+        assertEquals(6, ids.nextId());
+    }
+
+    @Test
+    public void markFreeMergesWithNeighbouringRanges() throws SQLException {
+        IdAllocator ids = load(1, 2, 3, 4, 5, 6);
+        ids.markFree(2);
+        ids.markFree(4);
+        assertEquals(2, ids.nextId());
+        // 3 joins 2 and 4 into one range
+        ids.markFree(3);
+        ids.markUsed(2);
+        assertEquals(3, ids.nextId());
+        ids.markUsed(3);
+        assertEquals(4, ids.nextId());
+        ids.markUsed(4);
+        assertEquals(7, ids.nextId());
+    }
+
+    @Test
+    public void markFreeOfTheTopLowersIt() throws SQLException {
+        IdAllocator ids = load(1, 2, 5);
+        // Free: 3-4; freeing 5 frees everything above 2
+        ids.markFree(5);
+        assertFalse(ids.isUsed(5));
+        assertEquals(3, ids.nextId());
+        ids.markUsed(3);
+        ids.markUsed(4);
+        assertEquals(5, ids.nextId());
+    }
+
+    @Test
+    public void markFreeIgnoresFreeAndInvalidIds() throws SQLException {
+        IdAllocator ids = load(1, 3);
+        ids.markFree(2);
+        ids.markFree(0);
+        ids.markFree(-1);
+        ids.markFree(9);
+        assertEquals(2, ids.nextId());
+        assertTrue(ids.isUsed(1));
+        assertTrue(ids.isUsed(3));
+    }
+
+    private static IdAllocator load(int... used) throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE bills (id INTEGER PRIMARY KEY)");
+            for (int id : used) {
+                stmt.execute("INSERT INTO bills (id) VALUES (" + id + ")");
+            }
+            IdAllocator ids = new IdAllocator();
+            ids.load(connection);
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package meralco;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsonReaderTest {
+
+    @Test
+    public void readsAnObjectInOrder() {
+        Map<String, Object> body = JsonReader.parseObject(
+                " {\"date\": \"2024-06-01\", \"kwh\": 120.5, \"rate\": null, \"paid\": true, \"tags\": [1, -2e3, false]} ");
+        assertEquals(Arrays.asList("date", "kwh", "rate", "paid", "tags"), Arrays.asList(body.keySet().toArray()));
+        assertEquals("2024-06-01", body.get("date"));
+        assertEquals(120.5, body.get("kwh"));
+        assertNull(body.get("rate"));
+        assertEquals(Boolean.TRUE, body.get("paid"));
+        assertEquals(Arrays.asList(1.0, -2000.0, Boolean.FALSE), body.get("tags"));
+    }
+
+    @Test
+    public void readsEmptyContainers() {
+        assertEquals(Collections.emptyMap(), JsonReader.parse("{}"));
+        assertEquals(Collections.emptyList(), JsonReader.parse("[ ]"));
+    }
+
+    @Test
+    public void decodesStringEscapes() {
+        assertEquals("a\"b\\c/d\b\f\n\r\t₱", JsonReader.parse("\"a\\\"b\\\\c\\/d\\b\\f\\n\\r\\t\\u20b1\""));
+    }
+
+    @Test
+    public void rejectsMalformedInput() {
+        assertRejected("", "unexpected end of input at offset 0");
+        assertRejected("{\"kwh\" 1}", "expected ':' at offset 7");
+        assertRejected("{\"kwh\": 1,}", "expected a member name at offset 10");
+        assertRejected("[1 2]", "expected ']' at offset 3");
+        assertRejected("\"open", "unterminated string at offset 5");
+        assertRejected("\"\\x\"", "invalid escape \\x at offset 3");
+        assertRejected("\"\\u12zz\"", "invalid \\u escape at offset 3");
+        assertRejected("1.2.3", "invalid number at offset 0");
+        assertRejected("\"\\u+041\"", "invalid \\u escape at offset 3");
+        assertRejected("\"\\u-041\"", "invalid \\u escape at offset 3");
+        assertRejected("\"\\u12\"", "incomplete \\u escape at offset 3");
+        assertRejected("tru", "unexpected character 't' at offset 0");
+        assertRejected("{} {}", "unexpected text after the value at offset 3");
+    }
+
+    @Test
+    public void readsNumbersAsJsonWritesThem() {
+        assertEquals(0.0, JsonReader.parse("0"));
+        assertEquals(-0.5, JsonReader.parse("-0.5"));
+        assertEquals(1250.0, JsonReader.parse("1.25E+3"));
+        assertEquals(0.01, JsonReader.parse("1e-2"));
+    }
+
+    @Test
+    public void rejectsNumbersJsonDoesNotAllow() {
+        assertRejected("01", "invalid number at offset 0");
+        assertRejected("-01", "invalid number at offset 0");
+        assertRejected("00", "invalid number at offset 0");
+        assertRejected("1.", "invalid number at offset 0");
+        assertRejected("1.e5", "invalid number at offset 0");
+        assertRejected("-", "invalid number at offset 0");
+        assertRejected("-.5", "invalid number at offset 0");
+        assertRejected("1e", "invalid number at offset 0");
+        assertRejected("1e+", "invalid number at offset 0");
+        assertRejected("[1, 02]", "invalid number at offset 4");
+        assertRejected("{\"kwh\": 0120}", "invalid number at offset 8");
+    }
+
+    @Test
+    public void parseObjectRejectsOtherValues() {
+        assertRejected("[]", true, "expected a JSON object");
+        assertRejected("\"text\"", true, "expected a JSON object");
+    }
+
+    @Test
+    public void acceptsNestingUpToTheLimit() {
+        Object value = JsonReader.parse(nested(JsonReader.MAX_DEPTH));
+        for (int level = 1; level < JsonReader.MAX_DEPTH; level++) {
+            value = ((List<?>) value).get(0);
+        }
+        assertEquals(Collections.emptyList(), value);
+    }
+
+    @Test
+    public void rejectsNestingBeyondTheLimit() {
+        assertRejected(nested(JsonReader.MAX_DEPTH + 1), "nested deeper than 32 levels at offset 32");
+        // Closing a container frees its level for a sibling
+        String siblings = "[" + nested(JsonReader.MAX_DEPTH - 1) + "," + nested(JsonReader.MAX_DEPTH - 1) + "]";
+        assertTrue(JsonReader.parse(siblings) instanceof List);
+        // A deep object is caught like a deep array
+        StringBuilder objects = new StringBuilder();
+        for (int i = 0; i <= JsonReader.MAX_DEPTH; i++) {
+            objects.append("{\"a\":");
+        }
+        assertRejected(objects.toString(), "nested deeper than 32 levels at offset " + (5 * JsonReader.MAX_DEPTH));
+    }
+
+    // depth arrays, the innermost empty
+    private static String nested(int depth) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            text.append('[');
+        }
+        for (int i = 0; i < depth; i++) {
+            text.append(']');
+        }
+        return text.toString();
+    }
+
+    private static void assertRejected(String text, String message) {
+        assertRejected(text, false, message);
+    }
+
+    private static void assertRejected(String text, boolean asObject, String message) {
+        try {
+            if (asObject) {
+                JsonReader.parseObject(text);
+            } else {
+                JsonReader.parse(text);
+            }
+            fail("expected " + text + " to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package meralco;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+// Checks the rollup the triggers keep against the same figures grouped
+// straight from bills, after each kind of write.
+public class MonthlySummaryTest {
+
+    private static final String ROLLUP = "SELECT account_id, month, reading_count, kwh_sum, total_sum, rate_sum, " +
+            "kwh_min, kwh_max, last_timestamp, last_kwh FROM monthly_summary ORDER BY account_id, month";
+    private static final String GROUPED = "SELECT account_id, substr(timestamp, 1, 7) AS month, COUNT(*), SUM(kwh), " +
+            "SUM(total), SUM(rate), MIN(kwh), MAX(kwh), MAX(timestamp), (SELECT b.kwh FROM bills b " +
+            "WHERE b.account_id = bills.account_id AND substr(b.timestamp, 1, 7) = substr(bills.timestamp, 1, 7) " +
+            "ORDER BY b.timestamp DESC, b.id DESC LIMIT 1) FROM bills GROUP BY account_id, month " +
+            "ORDER BY account_id, month";
+
+    private Connection connection;
+    private Statement stmt;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        stmt = connection.createStatement();
+        BillDatabase.createSchema(stmt);
+        stmt.execute("INSERT INTO accounts (id, name) VALUES (2, 'Second')");
+        insert(1, 1, "2024-01-05 08:00:00", 100, 10);
+        insert(2, 1, "2024-01-20 08:00:00", 150, 10);
+        insert(3, 1, "2024-02-03 08:00:00", 120, 11);
+        insert(4, 2, "2024-01-10 08:00:00", 80, 12);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void insertsAreSummed() throws SQLException {
+        assertRollup(3);
+        assertEquals(250, MonthlySummary.loadAll(connection, 1).get(0).kwhSum, 0);
+    }
+
+    @Test
+    public void deleteRecountsTheMonth() throws SQLException {
+        stmt.execute("DELETE FROM bills WHERE id = 2");
+        assertRollup(3);
+        stmt.execute("DELETE FROM bills WHERE id = 3");
+        // The emptied month is gone
+        assertRollup(2);
+    }
+
+    @Test
+    public void rateCorrectionAdjustsInPlace() throws SQLException {
+        stmt.execute("UPDATE bills SET rate = 12.5, total = kwh * 12.5 WHERE id = 1");
+        assertRollup(3);
+    }
+
+    @Test
+    public void billMovedToAnotherMonthAndAccount() throws SQLException {
+        stmt.execute("UPDATE bills SET timestamp = '2024-03-01 08:00:00' WHERE id = 3");
+        assertRollup(3);
+        stmt.execute("UPDATE bills SET account_id = 2, kwh = 90, total = 900 WHERE id = 2");
+        assertRollup(3);
+        stmt.execute("UPDATE bills SET id = 9 WHERE id = 1");
+        assertRollup(3);
+    }
+
+    // Readings at the same time: the one with the highest ID is the last,
+    // whether the month was summed as they arrived or recounted.
+    @Test
+    public void lastReadingTiesGoToTheHighestId() throws SQLException {
+        insert(8, 1, "2024-01-31 18:00:00", 40, 10);
+        insert(7, 1, "2024-01-31 18:00:00", 30, 10);
+        assertRollup(3);
+        assertEquals(40, MonthlySummary.loadAll(connection, 1).get(0).lastKwh, 0);
+
+        stmt.execute("DELETE FROM bills WHERE id = 1");
+        assertRollup(3);
+        assertEquals(40, MonthlySummary.loadAll(connection, 1).get(0).lastKwh, 0);
+
+        // A new ID can change which of them is last
+        stmt.execute("UPDATE bills SET id = 10 WHERE id = 7");
+        assertRollup(3);
+        assertEquals(30, MonthlySummary.loadAll(connection, 1).get(0).lastKwh, 0);
+    }
+
+    private void insert(int id, int account, String timestamp, double kwh, double rate) throws SQLException {
+        stmt.execute("INSERT INTO bills (id, kwh, rate, total, timestamp, account_id) VALUES (" + id + ", " + kwh +
+                ", " + rate + ", " + kwh * rate + ", '" + timestamp + "', " + account + ")");
+    }
+
+    private void assertRollup(int months) throws SQLException {
+        List<String> expected = rows(GROUPED);
+        assertEquals(months, expected.size());
+        assertEquals(expected, rows(ROLLUP));
+    }
+
+    private List<String> rows(String sql) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            ResultSetMetaData meta = rs.getMetaData();
+            while (rs.next()) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    row.append(rs.getString(i)).append(' ');
+                }
+                rows.add(row.toString());
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,97 @@
+package meralco;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OperationMetricsTest {
+
+    @Test
+    public void smallLatenciesGetABucketEach() {
+        for (int micros = 0; micros < 4; micros++) {
+            assertEquals(micros, OperationMetrics.bucket(micros));
+            assertEquals(micros, OperationMetrics.upperBound(micros));
+        }
+    }
+
+    @Test
+    public void eachDoublingIsSplitInFour() {
+        // 8-9, 10-11, 12-13, 14-15 µs
+        assertEquals(8, OperationMetrics.bucket(8));
+        assertEquals(8, OperationMetrics.bucket(9));
+        assertEquals(9, OperationMetrics.bucket(10));
+        assertEquals(11, OperationMetrics.bucket(15));
+        assertEquals(12, OperationMetrics.bucket(16));
+        assertEquals(9, OperationMetrics.upperBound(8));
+        assertEquals(15, OperationMetrics.upperBound(11));
+    }
+
+    @Test
+    public void bucketsAreContiguousAndWithinAQuarter() {
+        long previousBound = -1;
+        for (int bucket = 0; bucket < 100; bucket++) {
+            long bound = OperationMetrics.upperBound(bucket);
+            long lowest = previousBound + 1;
+            assertEquals(bucket, OperationMetrics.bucket(lowest));
+            assertEquals(bucket, OperationMetrics.bucket(bound));
+            assertTrue("bucket " + bucket, bound <= Math.max(3, lowest * 5 / 4));
+            previousBound = bound;
+        }
+    }
+
+    @Test
+    public void hugeLatenciesGoInTheLastBucket() {
+        assertEquals(159, OperationMetrics.bucket(Long.MAX_VALUE));
+        assertEquals(0, OperationMetrics.bucket(-5));
+    }
+
+    @Test
+    public void percentileIsTheUpperBoundOfTheBucketHoldingTheRank() {
+        long[] histogram = new long[160];
+        histogram[4] = 50;
+        histogram[8] = 49;
+        histogram[20] = 1;
+        assertEquals(4, OperationMetrics.percentile(histogram, 100, 0.50));
+        assertEquals(9, OperationMetrics.percentile(histogram, 100, 0.51));
+        assertEquals(9, OperationMetrics.percentile(histogram, 100, 0.99));
+        assertEquals(OperationMetrics.upperBound(20), OperationMetrics.percentile(histogram, 100, 1.0));
+        assertEquals(0, OperationMetrics.percentile(new long[160], 0, 0.99));
+    }
+
+    @Test
+    public void snapshotCountsTimingsRowsAndErrors() {
+        OperationMetrics metrics = new OperationMetrics();
+        metrics.start(OperationMetrics.DATABASE, "Load page").stop(100, false);
+        metrics.start(OperationMetrics.DATABASE, "Load page").stop(300, false);
+        metrics.start(OperationMetrics.DATABASE, "Load page").stop(0, true);
+        metrics.start(OperationMetrics.PAINT, "Table").stop(0, false);
+
+        List<OperationMetrics.Snapshot> snapshots = metrics.snapshot();
+        assertEquals(2, snapshots.size());
+        OperationMetrics.Snapshot load = snapshots.get(0);
+        assertEquals("Load page", load.name);
+        assertEquals(3, load.count);
+        assertEquals(1, load.errors);
+        assertEquals(400, load.rows);
+        assertEquals(400 / 3.0, load.averageRows(), 1e-9);
+        assertTrue(load.p50Millis <= load.p99Millis);
+        assertTrue(load.p99Millis <= load.maxMillis);
+        assertEquals(OperationMetrics.PAINT, snapshots.get(1).phase);
+
+        metrics.reset();
+        assertTrue(metrics.snapshot().isEmpty());
+    }
+
+    @Test
+    public void rowsOfCountsCollectionsAndRowCountedResults() {
+        assertEquals(3, OperationMetrics.rowsOf(Arrays.asList(1, 2, 3)));
+        assertEquals(7, OperationMetrics.rowsOf((OperationMetrics.RowCounted) () -> 7));
+        assertEquals(0, OperationMetrics.rowsOf(Collections.singletonMap("a", 1)));
+        assertEquals(0, OperationMetrics.rowsOf(null));
+    }
+}
@@ -0,0 +1,119 @@
+package meralco;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+// Enough accounts that the report is split between several tasks. Account i
+// (1-based) uses 100 + i, 110 + i and 120 + i kWh from January to March 2024
+// at 10 a kWh, so its April forecast is 130 + i.
+public class PortfolioReportTest {
+
+    private static final int ACCOUNTS = 100;
+    private static final double DELTA = 1e-6;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private String url;
+    private Connection connection;
+    private final RateSchedule rateSchedule = new RateSchedule();
+
+    @Before
+    public void setUp() throws Exception {
+        url = "jdbc:sqlite:" + folder.newFile("bills.db").getPath();
+        connection = BillDatabase.open(url);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("UPDATE accounts SET name = 'Account 1' WHERE id = " + BillDatabase.DEFAULT_ACCOUNT);
+        }
+        for (int i = 2; i <= ACCOUNTS; i++) {
+            Account.create(connection, "Account " + i);
+        }
+        // An account without bills, and bills of an account that doesn't exist
+        Account.create(connection, "Empty");
+        connection.setAutoCommit(false);
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "INSERT INTO bills (kwh, rate, total, timestamp, account_id) VALUES (?, 10, ?, ?, ?)")) {
+            for (int account = 1; account <= ACCOUNTS + 2; account++) {
+                if (account == ACCOUNTS + 1) {
+                    continue;
+                }
+                for (int month = 1; month <= 3; month++) {
+                    double kwh = 90 + 10 * month + account;
+                    pstmt.setDouble(1, kwh);
+                    pstmt.setDouble(2, kwh * 10);
+                    pstmt.setString(3, String.format("2024-%02d-10 08:00:00", month));
+                    pstmt.setInt(4, account);
+                    pstmt.addBatch();
+                }
+            }
+            pstmt.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void accountsAreTotalledInOrder() throws SQLException {
+        PortfolioReport report = PortfolioReport.build(connection, url, rateSchedule, null);
+
+        assertEquals(ACCOUNTS + 1, report.accounts.size());
+        for (int i = 1; i <= ACCOUNTS; i++) {
+            PortfolioReport.AccountTotals totals = report.accounts.get(i - 1);
+            assertEquals(i, totals.account.id);
+            assertEquals(3, totals.months);
+            assertEquals(3, totals.readings);
+            assertEquals(330 + 3 * i, totals.kwh, DELTA);
+            assertEquals(10 * (330 + 3 * i), totals.total, DELTA);
+            assertEquals("2024-03", totals.lastMonth);
+            assertEquals(130 + i, totals.forecastKwh, DELTA);
+            // Priced at the latest month's average rate
+            assertEquals(10 * (130 + i), totals.forecastTotal, DELTA);
+        }
+
+        // Sums of 1..ACCOUNTS
+        double ids = ACCOUNTS * (ACCOUNTS + 1) / 2.0;
+        assertEquals(3 * ACCOUNTS, report.readings);
+        assertEquals(330 * ACCOUNTS + 3 * ids, report.kwh, DELTA);
+        assertEquals(10 * (330 * ACCOUNTS + 3 * ids), report.total, DELTA);
+        assertEquals(130 * ACCOUNTS + ids, report.forecastKwh, DELTA);
+        assertEquals(10 * (130 * ACCOUNTS + ids), report.forecastTotal, DELTA);
+        assertEquals(ACCOUNTS + 1, report.rowCount());
+    }
+
+    @Test
+    public void accountWithoutBillsIsZero() throws SQLException {
+        PortfolioReport.AccountTotals empty = PortfolioReport.build(connection, url, rateSchedule, null)
+                .accounts.get(ACCOUNTS);
+        assertEquals("Empty", empty.account.name);
+        assertEquals(0, empty.readings);
+        assertEquals(0, empty.kwh, DELTA);
+        assertEquals(0, empty.forecastTotal, DELTA);
+        assertNull(empty.lastMonth);
+    }
+
+    // As in Estimated Billing, a rate scheduled for the month comes first
+    @Test
+    public void forecastsArePricedAtTheScheduledRate() throws SQLException {
+        rateSchedule.put(connection, LocalDate.of(2024, 4, 1), 12);
+        PortfolioReport report = PortfolioReport.build(connection, url, rateSchedule, null);
+        assertEquals(12 * (130 + 7), report.accounts.get(6).forecastTotal, DELTA);
+        assertEquals(12 * report.forecastKwh, report.forecastTotal, DELTA);
+    }
+}
@@ -0,0 +1,82 @@
+package meralco;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RateScheduleTest {
+
+    private static final double DELTA = 1e-9;
+
+    private Connection connection;
+    private final RateSchedule schedule = new RateSchedule();
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = connection.createStatement()) {
+            BillDatabase.createSchema(stmt);
+        }
+        schedule.put(connection, LocalDate.of(2024, 1, 1), 11.0);
+        schedule.put(connection, LocalDate.of(2024, 3, 15), 12.5);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void emptyScheduleHasNoRate() {
+        assertNull(new RateSchedule().rateOn(LocalDate.of(2024, 1, 1)));
+    }
+
+    @Test
+    public void noRateBeforeTheFirstEffectiveDate() {
+        assertNull(schedule.rateOn(LocalDate.of(2023, 12, 31)));
+    }
+
+    @Test
+    public void rateTakesEffectOnItsDate() {
+        assertEquals(11.0, schedule.rateOn(LocalDate.of(2024, 1, 1)), DELTA);
+        assertEquals(12.5, schedule.rateOn(LocalDate.of(2024, 3, 15)), DELTA);
+    }
+
+    @Test
+    public void rateHoldsUntilTheNextOne() {
+        assertEquals(11.0, schedule.rateOn(LocalDate.of(2024, 3, 14)), DELTA);
+        assertEquals(12.5, schedule.rateOn(LocalDate.of(2030, 1, 1)), DELTA);
+    }
+
+    @Test
+    public void timestampIsLookedUpByItsDate() {
+        assertEquals(11.0, schedule.rateOn("2024-03-14 23:59:59"), DELTA);
+        assertEquals(12.5, schedule.rateOn("2024-03-15"), DELTA);
+    }
+
+    @Test
+    public void putReplacesAndRemoveReopensTheGap() throws SQLException {
+        schedule.put(connection, LocalDate.of(2024, 3, 15), 13.0);
+        assertEquals(13.0, schedule.rateOn(LocalDate.of(2024, 4, 1)), DELTA);
+        schedule.remove(connection, LocalDate.of(2024, 3, 15));
+        assertEquals(11.0, schedule.rateOn(LocalDate.of(2024, 4, 1)), DELTA);
+        assertEquals(1, schedule.getRates().size());
+    }
+
+    // Another schedule over the same table sees the saved rates once loaded
+    @Test
+    public void loadReadsTheSavedRates() throws SQLException {
+        RateSchedule loaded = new RateSchedule();
+        loaded.load(connection);
+        assertEquals(schedule.getRates(), loaded.getRates());
+    }
+}
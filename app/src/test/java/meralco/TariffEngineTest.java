@@ -0,0 +1,147 @@
+package meralco;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class TariffEngineTest {
+
+    private static final double DELTA = 1e-9;
+
+    // Shaped like tariff.example.properties, with fewer components
+    private static final TariffEngine TARIFF = new TariffEngine.Builder("test")
+            .energy("generation", false, "6.0")
+            .energy("distribution", false, "200:1.0, 300:1.3, 400:1.6, 1.9")
+            .fixed("metering", "100:5.0, 8.0")
+            .percent("lifeline", "20:-1.0, 50:-0.5, 70:-0.35, 100:-0.2", "generation", "distribution", "metering")
+            .energy("subsidy", true, "100:0, 0.01")
+            .percent("vat", "0.12", "generation", "distribution", "metering", "lifeline")
+            .build();
+
+    @Test
+    public void energyBlocksChargeEachKwhAtItsBlockRate() {
+        assertEquals(200, component(200, "distribution"), DELTA);
+        assertEquals(200 + 0.5 * 1.3, component(200.5, "distribution"), DELTA);
+        assertEquals(200 + 100 * 1.3 + 50 * 1.6, component(350, "distribution"), DELTA);
+        assertEquals(200 + 100 * 1.3 + 100 * 1.6 + 50 * 1.9, component(450, "distribution"), DELTA);
+        assertEquals(0, component(0, "distribution"), DELTA);
+    }
+
+    @Test
+    public void bracketedEnergyChargesAllKwhAtOneRate() {
+        assertEquals(0, component(100, "subsidy"), DELTA);
+        assertEquals(101 * 0.01, component(101, "subsidy"), DELTA);
+    }
+
+    @Test
+    public void fixedAmountFollowsTheBracket() {
+        assertEquals(5, component(100, "metering"), DELTA);
+        assertEquals(8, component(100.1, "metering"), DELTA);
+    }
+
+    @Test
+    public void percentAppliesToItsBaseComponents() {
+        // 30 kWh: 180 + 30 + 5 = 215, half off, VAT on the rest
+        double[] amounts = new double[TARIFF.getComponentCount()];
+        double total = TARIFF.evaluate(30, amounts);
+        assertEquals(-107.5, amounts[index("lifeline")], DELTA);
+        assertEquals(0.12 * 107.5, amounts[index("vat")], DELTA);
+        assertEquals(107.5 + 0.12 * 107.5, total, DELTA);
+
+        // Up to 20 kWh the lifeline discount is the whole bill
+        assertEquals(0, TARIFF.evaluate(20, amounts), DELTA);
+        // Past the last bracket there is no discount
+        TARIFF.evaluate(350, amounts);
+        assertEquals(0, amounts[index("lifeline")], DELTA);
+        assertEquals(0.12 * (2100 + 410 + 8), amounts[index("vat")], DELTA);
+    }
+
+    @Test
+    public void calculateTotalsTheRoundedLines() {
+        TariffEngine tariff = new TariffEngine.Builder("rounding")
+                .energy("a", false, "0.005")
+                .energy("b", false, "0.005")
+                .build();
+        TariffEngine.Bill bill = tariff.calculate(1);
+        assertEquals(new BigDecimal("0.01"), bill.getLine(0));
+        assertEquals(new BigDecimal("0.01"), bill.getLine(1));
+        assertEquals(new BigDecimal("0.02"), bill.getTotal());
+    }
+
+    @Test
+    public void calculateMatchesEvaluate() {
+        TariffEngine.Bill bill = TARIFF.calculate(350);
+        assertEquals(new BigDecimal("2823.66"), bill.getTotal());
+        assertEquals(new BigDecimal("302.16"), bill.getLine(index("vat")));
+    }
+
+    @Test
+    public void rejectsBadTiers() {
+        assertRejected(() -> new TariffEngine.Builder("t").energy("e", false, "5.0, 100:6.0"),
+                "Only the last tier of e may be unbounded");
+        assertRejected(() -> new TariffEngine.Builder("t").energy("e", false, "100:5.0, 100:6.0"),
+                "Tier limits of e must increase");
+        assertRejected(() -> new TariffEngine.Builder("t").energy("e", false, "100:five"),
+                "Invalid tiers for e: 100:five");
+        assertRejected(() -> new TariffEngine.Builder("t").percent("vat", "0.12", "e"),
+                "vat refers to e, which is not an earlier component");
+        assertRejected(() -> new TariffEngine.Builder("t").fixed("f", "1").fixed("f", "2"),
+                "Duplicate tariff component: f");
+        assertRejected(() -> new TariffEngine.Builder("t").build(), "Tariff t has no components");
+    }
+
+    @Test
+    public void readsADefinitionFromProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("version", "2024-06");
+        properties.setProperty("effective", "2024-06-01");
+        properties.setProperty("components", "generation, vat");
+        properties.setProperty("generation.type", "energy");
+        properties.setProperty("generation.tiers", "10:5.0, 6.0");
+        properties.setProperty("vat.type", "percent");
+        properties.setProperty("vat.of", "generation");
+        properties.setProperty("vat.tiers", "0.5");
+        TariffEngine tariff = TariffEngine.fromProperties(properties);
+        assertEquals("2024-06", tariff.getVersion());
+        assertEquals(2, tariff.getComponentCount());
+        assertEquals("vat", tariff.getComponentName(1));
+        assertEquals(1.5 * (50 + 12), tariff.evaluate(12, new double[2]), DELTA);
+
+        properties.setProperty("effective", "June");
+        assertRejected(() -> TariffEngine.fromProperties(properties), "effective must be a YYYY-MM-DD date: June");
+        properties.remove("effective");
+        properties.setProperty("vat.type", "tax");
+        assertRejected(() -> TariffEngine.fromProperties(properties), "vat.type must be energy, fixed or percent: tax");
+        properties.remove("vat.tiers");
+        properties.setProperty("vat.type", "percent");
+        assertRejected(() -> TariffEngine.fromProperties(properties), "Tariff definition is missing vat.tiers");
+    }
+
+    private static double component(double kwh, String name) {
+        double[] amounts = new double[TARIFF.getComponentCount()];
+        TARIFF.evaluate(kwh, amounts);
+        return amounts[index(name)];
+    }
+
+    private static int index(String name) {
+        for (int i = 0; i < TARIFF.getComponentCount(); i++) {
+            if (TARIFF.getComponentName(i).equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    private static void assertRejected(Runnable definition, String message) {
+        try {
+            definition.run();
+            fail("expected " + message);
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}
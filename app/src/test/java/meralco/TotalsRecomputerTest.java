@@ -0,0 +1,167 @@
+package meralco;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TotalsRecomputerTest {
+
+    private static final double DELTA = 1e-9;
+
+    private Connection connection;
+    // Fractions and row counts in the order they were reported
+    private final List<Double> fractions = new ArrayList<>();
+    private final List<Long> rows = new ArrayList<>();
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = connection.createStatement()) {
+            BillDatabase.createSchema(stmt);
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void setsTheNewRateOnMatchingBillsOnly() throws SQLException {
+        insert(1, "2024-05-31", 100, 10, "may");
+        insert(2, "2024-06-01", 200, 10, "june");
+        insert(3, "2024-06-30", 50, 10, "june");
+        insert(4, "2024-07-01", 80, 10, "july");
+
+        assertEquals(2, recompute(BillFilter.byDate("2024-06"), 12.5));
+        assertBill(1, 10, 1000);
+        assertBill(2, 12.5, 2500);
+        assertBill(3, 12.5, 625);
+        assertBill(4, 10, 800);
+        assertEquals(Arrays.asList(1.0), fractions);
+        assertEquals(Arrays.asList(2L), rows);
+    }
+
+    @Test
+    public void scheduledRateIsTheOneInEffectOnTheBillsDate() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("INSERT INTO rate_schedule VALUES ('2024-03-01', 11), ('2024-06-15', 12)");
+        }
+        insert(1, "2024-02-28", 100, 9, null);
+        insert(2, "2024-03-01", 100, 9, null);
+        insert(3, "2024-06-14", 100, 9, null);
+        insert(4, "2024-06-15", 10, 9, null);
+
+        assertEquals(4, recompute(BillFilter.ALL, null));
+        // Before the schedule starts the bill keeps its own rate
+        assertBill(1, 9, 900);
+        assertBill(2, 11, 1100);
+        assertBill(3, 11, 1100);
+        assertBill(4, 12, 120);
+    }
+
+    @Test
+    public void memoFilterUpdatesTheMatchingBills() throws SQLException {
+        insert(1, "2024-06-01", 100, 10, "meter replaced");
+        insert(2, "2024-06-02", 100, 10, "estimated reading");
+        insert(3, "2024-06-03", 100, 10, "replaced breaker");
+
+        assertEquals(2, recompute(BillFilter.byMemo("replaced").inAccount(BillDatabase.DEFAULT_ACCOUNT), 11.0));
+        assertBill(1, 11, 1100);
+        assertBill(2, 10, 1000);
+        assertBill(3, 11, 1100);
+    }
+
+    @Test
+    public void sparseIdsAreUpdatedInChunksOfMatchingRows() throws SQLException {
+        // Ids a thousand apart: the range spans 100 million ids, but the rows fit in three chunks
+        int count = 2 * TotalsRecomputer.CHUNK_SIZE + 1;
+        insertSpaced(count, 1000);
+
+        assertEquals(count, recompute(BillFilter.ALL, 2.0));
+        assertEquals(3, rows.size());
+        assertEquals(Arrays.asList((long) TotalsRecomputer.CHUNK_SIZE, 2L * TotalsRecomputer.CHUNK_SIZE, (long) count), rows);
+        assertEquals(0.5, fractions.get(0), 1e-4);
+        assertEquals(1.0, fractions.get(2), DELTA);
+        assertEquals(count, countWhere("rate = 2.0 AND total = kwh * 2.0"));
+    }
+
+    @Test
+    public void cancelStopsBetweenChunksAndKeepsCommittedOnes() throws SQLException {
+        insertSpaced(TotalsRecomputer.CHUNK_SIZE + 10, 7);
+
+        long updated = new TotalsRecomputer(connection).recompute(BillFilter.ALL, 3.0,
+                (fraction, rowsUpdated) -> rows.add(rowsUpdated), () -> !rows.isEmpty());
+        assertEquals(TotalsRecomputer.CHUNK_SIZE, updated);
+        assertEquals(TotalsRecomputer.CHUNK_SIZE, countWhere("rate = 3.0"));
+        // The first chunk is the lowest ids
+        assertEquals(10, countWhere("rate = 1.0 AND id > " + 7L * TotalsRecomputer.CHUNK_SIZE));
+    }
+
+    @Test
+    public void noMatchesReportsDone() throws SQLException {
+        insert(1, "2024-06-01", 100, 10, null);
+
+        assertEquals(0, recompute(BillFilter.byDate("2023"), 12.0));
+        assertEquals(Arrays.asList(1.0), fractions);
+        assertBill(1, 10, 1000);
+    }
+
+    private long recompute(BillFilter filter, Double newRate) throws SQLException {
+        return new TotalsRecomputer(connection).recompute(filter, newRate, (fraction, rowsUpdated) -> {
+            fractions.add(fraction);
+            rows.add(rowsUpdated);
+        }, () -> false);
+    }
+
+    private void insert(int id, String date, double kwh, double rate, String memo) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "INSERT INTO bills (id, kwh, rate, total, timestamp, memo) VALUES (?, ?, ?, ?, ?, ?)")) {
+            pstmt.setInt(1, id);
+            pstmt.setDouble(2, kwh);
+            pstmt.setDouble(3, rate);
+            pstmt.setDouble(4, kwh * rate);
+            pstmt.setString(5, date + " 10:00:00");
+            pstmt.setString(6, memo);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // count bills with ids step apart, at rate 1
+    private void insertSpaced(int count, long step) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < " + count + ") " +
+                    "INSERT INTO bills (id, kwh, rate, total, timestamp) " +
+                    "SELECT i * " + step + ", i % 500, 1.0, i % 500, '2024-06-01 10:00:00' FROM n");
+        }
+    }
+
+    private long countWhere(String condition) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM bills WHERE " + condition)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private void assertBill(int id, double rate, double total) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT rate, total FROM bills WHERE id = " + id)) {
+            rs.next();
+            assertEquals("rate of " + id, rate, rs.getDouble(1), DELTA);
+            assertEquals("total of " + id, total, rs.getDouble(2), DELTA);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package meralco;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Computing one bill: the flat kWh x rate product, the tariff's allocation-free
+// evaluation, and the itemized BigDecimal bill shown to the user.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BillCalculationBenchmark {
+    private TariffEngine tariff;
+    private double[] amounts;
+    private double kwh;
+    private double rate;
+
+    @Setup
+    public void setUp() {
+        // Same shape as tariff.example.properties
+        String[] charged = {"generation", "transmission", "system_loss", "distribution", "supply", "metering"};
+        tariff = new TariffEngine.Builder("benchmark")
+                .energy("generation", false, "6.0")
+                .energy("transmission", false, "1.0")
+                .energy("system_loss", false, "0.6")
+                .energy("distribution", false, "200:1.0, 300:1.3, 400:1.6, 1.9")
+                .fixed("supply", "16.0")
+                .fixed("metering", "5.0")
+                .percent("lifeline_discount", "20:-1.0, 50:-0.5, 70:-0.35, 100:-0.2", charged)
+                .energy("lifeline_subsidy", true, "100:0, 0.01")
+                .energy("universal_charges", false, "0.2")
+                .percent("vat", "0.12", "generation", "transmission", "system_loss", "distribution", "supply", "metering", "lifeline_discount")
+                .build();
+        amounts = new double[tariff.getComponentCount()];
+        kwh = 347.5;
+        rate = 11.4172;
+    }
+
+    @Benchmark
+    public double flatRate() {
+        return MeralcoBill.calculateTotal(kwh, rate);
+    }
+
+    @Benchmark
+    public double tariffEvaluate() {
+        return tariff.evaluate(kwh, amounts);
+    }
+
+    @Benchmark
+    public TariffEngine.Bill tariffItemized() {
+        return tariff.calculate(kwh);
+    }
+}
@@ -0,0 +1,126 @@
+package meralco;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+// Inserting bills one per transaction, as Save does, against single inserts
+// sharing a transaction and the importer's batches in one transaction; all
+// report time per row. Rows added during an
+// iteration are deleted after it, so every iteration starts from the seed.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class InsertBenchmark {
+    static final int BATCH_SIZE = 1000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private Connection connection;
+    private BillRepository repository;
+    private int seedMaxId;
+    private int nextId;
+
+    @Setup(Level.Trial)
+    public void open() throws ClassNotFoundException, SQLException, IOException {
+        connection = BenchmarkDatabase.open(rows);
+        repository = new BillRepository(connection);
+        seedMaxId = BenchmarkDatabase.maxId(connection);
+        nextId = seedMaxId + 1;
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeInserted() throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement("DELETE FROM bills WHERE id > ?")) {
+            pstmt.setInt(1, seedMaxId);
+            pstmt.executeUpdate();
+        }
+        nextId = seedMaxId + 1;
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+        }
+        repository.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public void singleInsert() throws SQLException {
+        int id = nextId++;
+        repository.insert(BillDatabase.DEFAULT_ACCOUNT, id, 250, 11.5, 250 * 11.5, timestamp(id), "benchmark");
+    }
+
+    // Single-row inserts grouped into one unit of work, as several edits
+    // would be: one commit per BATCH_SIZE rows
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void transactionInsert() throws SQLException {
+        repository.inTransaction(() -> {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                int id = nextId++;
+                repository.insert(BillDatabase.DEFAULT_ACCOUNT, id, 250, 11.5, 250 * 11.5, timestamp(id), "benchmark");
+            }
+            return null;
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void batchedInsert() throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "INSERT INTO bills (id, kwh, rate, total, timestamp, memo) VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                int id = nextId++;
+                pstmt.setInt(1, id);
+                pstmt.setDouble(2, 250);
+                pstmt.setDouble(3, 11.5);
+                pstmt.setDouble(4, 250 * 11.5);
+                pstmt.setString(5, timestamp(id));
+                pstmt.setString(6, "benchmark");
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    // Dates after the seeded range, consecutive ids in consecutive months of
+    // 2025-2044. Deleting a bill recounts its month, so spreading the rows
+    // keeps removeInserted from recounting one huge month per row.
+    private static String timestamp(int id) {
+        int month = id % 240;
+        return String.format("%04d-%02d-%02d %02d:%02d:00", 2025 + month / 12, 1 + month % 12,
+                1 + id / 240 % 28, id / 6720 % 24, id / 161280 % 60);
+    }
+}
@@ -0,0 +1,77 @@
+package meralco;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// A search as the table runs it (count, then the first page): the old
+// LIKE '%term%' scans against the indexed filters that replaced them.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Benchmark
+    public void memoLike(SeededDatabase db, Blackhole blackhole) throws SQLException {
+        likeSearch(db, "memo LIKE ?", "%summer%", blackhole);
+    }
+
+    @Benchmark
+    public void memoFullText(SeededDatabase db, Blackhole blackhole) throws SQLException {
+        search(db, BillFilter.byMemo("summer"), blackhole);
+    }
+
+    @Benchmark
+    public void dateLike(SeededDatabase db, Blackhole blackhole) throws SQLException {
+        likeSearch(db, "timestamp LIKE ?", "%2015-06%", blackhole);
+    }
+
+    @Benchmark
+    public void dateRange(SeededDatabase db, Blackhole blackhole) throws SQLException {
+        search(db, BillFilter.byDate("2015-06"), blackhole);
+    }
+
+    @Benchmark
+    public void rateLike(SeededDatabase db, Blackhole blackhole) throws SQLException {
+        likeSearch(db, "CAST(rate AS TEXT) LIKE ?", "%11.4%", blackhole);
+    }
+
+    @Benchmark
+    public void rateRange(SeededDatabase db, Blackhole blackhole) throws SQLException {
+        search(db, BillFilter.byRate("11.4"), blackhole);
+    }
+
+    private static void search(SeededDatabase db, BillFilter filter, Blackhole blackhole) throws SQLException {
+        blackhole.consume(db.repository.count(filter));
+        try (ResultSet rs = db.repository.queryPage(filter, BillOrder.NEWEST_FIRST, BillTableModel.PAGE_SIZE, 0)) {
+            TableModelBenchmark.consumeRows(rs, blackhole);
+        }
+    }
+
+    private static void likeSearch(SeededDatabase db, String condition, String pattern, Blackhole blackhole) throws SQLException {
+        PreparedStatement count = db.repository.prepare("SELECT COUNT(*) FROM bills WHERE " + condition);
+        count.setString(1, pattern);
+        try (ResultSet rs = count.executeQuery()) {
+            rs.next();
+            blackhole.consume(rs.getInt(1));
+        }
+        PreparedStatement page = db.repository.prepare("SELECT id, timestamp, kwh, rate, total, memo FROM bills WHERE " +
+                condition + " ORDER BY timestamp DESC, id DESC LIMIT " + BillTableModel.PAGE_SIZE);
+        page.setString(1, pattern);
+        try (ResultSet rs = page.executeQuery()) {
+            TableModelBenchmark.consumeRows(rs, blackhole);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package meralco;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// A read-only seeded database shared by the threads of one benchmark run.
+@State(Scope.Benchmark)
+public class SeededDatabase {
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    Connection connection;
+    BillRepository repository;
+
+    @Setup(Level.Trial)
+    public void open() throws ClassNotFoundException, SQLException, IOException {
+        connection = BenchmarkDatabase.open(rows);
+        repository = new BillRepository(connection);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        repository.close();
+        connection.close();
+    }
+}
@@ -0,0 +1,60 @@
+package meralco;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+// Filling the records table: reading every row up front, as the table used
+// to, against the paged model's count plus one page.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TableModelBenchmark {
+
+    @Benchmark
+    public void readAllRows(SeededDatabase db, Blackhole blackhole) throws SQLException {
+        try (Statement stmt = db.connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, timestamp, kwh, rate, total, memo FROM bills ORDER BY timestamp DESC, id DESC")) {
+            consumeRows(rs, blackhole);
+        }
+    }
+
+    @Benchmark
+    public void firstPage(SeededDatabase db, Blackhole blackhole) throws SQLException {
+        blackhole.consume(db.repository.count(BillFilter.ALL));
+        try (ResultSet rs = db.repository.queryPage(BillFilter.ALL, BillOrder.NEWEST_FIRST, BillTableModel.PAGE_SIZE, 0)) {
+            consumeRows(rs, blackhole);
+        }
+    }
+
+    // A page scrolled to halfway down; OFFSET makes SQLite step over the rows before it
+    @Benchmark
+    public void middlePage(SeededDatabase db, Blackhole blackhole) throws SQLException {
+        try (ResultSet rs = db.repository.queryPage(BillFilter.ALL, BillOrder.NEWEST_FIRST, BillTableModel.PAGE_SIZE, db.rows / 2)) {
+            consumeRows(rs, blackhole);
+        }
+    }
+
+    static void consumeRows(ResultSet rs, Blackhole blackhole) throws SQLException {
+        while (rs.next()) {
+            blackhole.consume(rs.getInt(1));
+            blackhole.consume(rs.getString(2));
+            blackhole.consume(rs.getDouble(3));
+            blackhole.consume(rs.getDouble(4));
+            blackhole.consume(rs.getDouble(5));
+            blackhole.consume(rs.getString(6));
+        }
+    }
+}